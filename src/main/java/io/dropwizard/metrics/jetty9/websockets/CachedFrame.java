@@ -0,0 +1,95 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.metrics.jetty9.websockets;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import javax.websocket.SendHandler;
+import javax.websocket.Session;
+
+/**
+ * An immutable message payload shared by every send. Binary payloads live in one read-only heap buffer
+ * that is sent without copying. Text payloads share one string, which Jetty 9.4 still encodes on every
+ * send: its remote endpoint has no way to send pre-encoded text that keeps the ordering with the
+ * session's other messages, so for text the cache saves producing the payload, not encoding it.
+ * Sends go through the session's remote endpoint, so they are ordered with its other messages.
+ * Callers sending a frame often should keep it rather than look it up per send.
+ */
+public class CachedFrame {
+    private final String text;
+    private final ByteBuffer payload;
+    private final int size;
+    // the cache generation of the last lookup, for approximate least recently used eviction
+    private volatile long lastUsed;
+
+    CachedFrame(String text) {
+        this.text = text;
+        this.payload = null;
+        this.size = text.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    CachedFrame(byte[] payload) {
+        this.text = null;
+        this.payload = ByteBuffer.wrap(payload.clone()).asReadOnlyBuffer();
+        this.size = payload.length;
+    }
+
+    public boolean isText() {
+        return text != null;
+    }
+
+    /**
+     * @return the payload size on the wire
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the heap held by the payload, two bytes per character for text
+     */
+    public long getRetainedBytes() {
+        return text != null ? 2L * text.length() : size;
+    }
+
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    void touch(long generation) {
+        // skips the write, and the contention on it, for frames already used in this generation
+        if (lastUsed != generation)
+            lastUsed = generation;
+    }
+
+    /**
+     * Sends the frame like an asynchronous send of the same message.
+     * @throws IllegalStateException if the session is in the middle of sending a partial or streamed message
+     */
+    public void send(Session session, SendHandler handler) {
+        if (text != null)
+            session.getAsyncRemote().sendText(text, handler);
+        else
+            session.getAsyncRemote().sendBinary(payload.duplicate(), handler);
+    }
+}
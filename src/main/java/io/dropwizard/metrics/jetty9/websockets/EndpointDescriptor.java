@@ -0,0 +1,111 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.metrics.jetty9.websockets;
+
+import io.dropwizard.websockets.striped.StripeKey;
+import io.dropwizard.websockets.striped.StripedDispatch;
+import javax.websocket.OnMessage;
+import org.eclipse.jetty.websocket.jsr356.annotations.OnMessageCallable;
+import org.eclipse.jetty.websocket.jsr356.metadata.EndpointMetadata;
+import org.eclipse.jetty.websocket.jsr356.server.AnnotatedServerEndpointMetadata;
+
+/**
+ * Everything the instrumented drivers need to know about an endpoint class, computed once
+ * when the endpoint is registered instead of on every connection.
+ */
+public class EndpointDescriptor {
+    public static final int DEFAULT_MESSAGE_SIZE = -1;
+
+    private final Class<?> endpointClass;
+    private final EventDriverMetrics metrics;
+    private final int maxTextMessageSize;
+    private final int maxBinaryMessageSize;
+    private final StripeKey stripeKey;
+
+    EndpointDescriptor(EndpointMetadata metadata, EventDriverMetrics metrics) {
+        this.endpointClass = metadata.getEndpointClass();
+        this.metrics = metrics;
+        if (metadata instanceof AnnotatedServerEndpointMetadata) {
+            AnnotatedServerEndpointMetadata annotated = (AnnotatedServerEndpointMetadata) metadata;
+            this.maxTextMessageSize = maxMessageSize(annotated.onText, annotated.onTextStream);
+            this.maxBinaryMessageSize = maxMessageSize(annotated.onBinary, annotated.onBinaryStream);
+        } else {
+            this.maxTextMessageSize = DEFAULT_MESSAGE_SIZE;
+            this.maxBinaryMessageSize = DEFAULT_MESSAGE_SIZE;
+        }
+        this.stripeKey = stripeKey(endpointClass.getAnnotation(StripedDispatch.class));
+    }
+
+    private static StripeKey stripeKey(StripedDispatch striped) {
+        if (striped == null)
+            return null;
+        if (!striped.pathParam().isEmpty())
+            return new StripeKey.ByPathParameter(striped.pathParam());
+        try {
+            return striped.key().newInstance();
+        } catch (InstantiationException | IllegalAccessException ex) {
+            throw new RuntimeException("can't create stripe key " + striped.key().getName(), ex);
+        }
+    }
+
+    // Same rule as JsrServerEndpointImpl: the first @OnMessage with a positive maxMessageSize wins
+    private static int maxMessageSize(OnMessageCallable... onMessages) {
+        for (OnMessageCallable callable : onMessages) {
+            if (callable == null)
+                continue;
+            OnMessage onMsg = callable.getMethod().getAnnotation(OnMessage.class);
+            if (onMsg != null && onMsg.maxMessageSize() > 0)
+                return (int) onMsg.maxMessageSize();
+        }
+        return DEFAULT_MESSAGE_SIZE;
+    }
+
+    public Class<?> getEndpointClass() {
+        return endpointClass;
+    }
+
+    public EventDriverMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return the @OnMessage text size limit, or {@link #DEFAULT_MESSAGE_SIZE} to keep the policy's
+     */
+    public int getMaxTextMessageSize() {
+        return maxTextMessageSize;
+    }
+
+    /**
+     * @return the @OnMessage binary size limit, or {@link #DEFAULT_MESSAGE_SIZE} to keep the policy's
+     */
+    public int getMaxBinaryMessageSize() {
+        return maxBinaryMessageSize;
+    }
+
+    /**
+     * @return the key of the endpoint's lane, or null if it is not annotated with {@link StripedDispatch}
+     */
+    public StripeKey getStripeKey() {
+        return stripeKey;
+    }
+}
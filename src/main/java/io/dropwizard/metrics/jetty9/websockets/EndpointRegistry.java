@@ -0,0 +1,130 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.metrics.jetty9.websockets;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.metrics.jetty9.websockets.tracing.MessageTracer;
+import io.dropwizard.websockets.striped.StripedExecutor;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.eclipse.jetty.websocket.jsr356.metadata.EndpointMetadata;
+
+/**
+ * Shared state of the instrumented event drivers. Endpoints are registered at startup so that
+ * opening a connection is a single map lookup; endpoints added to the container directly are
+ * described on their first connection. The event driver implementations of one container share a
+ * registry, so that their sessions are counted by one set of gauges.
+ */
+public class EndpointRegistry {
+    private final MetricRegistry metrics;
+    private final MessageTracer tracer;
+    private final SessionRegistry sessions;
+    private final StripedExecutor striped;
+    private final ConcurrentMap<Class<?>, EndpointDescriptor> endpoints = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, ConcurrentMap<String, EventDriverMetrics>> subprotocolMetrics = new ConcurrentHashMap<>();
+
+    public EndpointRegistry(MetricRegistry metrics, MessageTracer tracer) {
+        this(metrics, tracer, false);
+    }
+
+    public EndpointRegistry(MetricRegistry metrics, MessageTracer tracer, boolean memoryAccounting) {
+        this(metrics, tracer, memoryAccounting, null);
+    }
+
+    /**
+     * @param striped the lanes of {@link io.dropwizard.websockets.striped.StripedDispatch} endpoints, or null
+     */
+    public EndpointRegistry(MetricRegistry metrics, MessageTracer tracer, boolean memoryAccounting, StripedExecutor striped) {
+        this.metrics = metrics;
+        this.tracer = tracer;
+        this.sessions = new SessionRegistry(metrics, memoryAccounting);
+        this.striped = striped;
+    }
+
+    public EndpointDescriptor register(EndpointMetadata metadata) {
+        return endpoints.computeIfAbsent(metadata.getEndpointClass(),
+                klass -> new EndpointDescriptor(metadata, new EventDriverMetrics(klass, metrics)));
+    }
+
+    public EndpointDescriptor get(EndpointMetadata metadata) {
+        EndpointDescriptor descriptor = endpoints.get(metadata.getEndpointClass());
+        return descriptor != null ? descriptor : register(metadata);
+    }
+
+    /**
+     * @return the metrics of a handler selected by subprotocol, named after the handler and the subprotocol
+     */
+    public EventDriverMetrics getSubprotocolMetrics(Class<?> handler, String subprotocol) {
+        ConcurrentMap<String, EventDriverMetrics> byHandler = subprotocolMetrics.get(handler);
+        EventDriverMetrics edm = byHandler != null ? byHandler.get(subprotocol) : null;
+        if (edm != null)
+            return edm;
+        return subprotocolMetrics.computeIfAbsent(handler, h -> new ConcurrentHashMap<>())
+                .computeIfAbsent(subprotocol, p -> new EventDriverMetrics(handler, p, metrics));
+    }
+
+    /**
+     * @return the metrics of every handler selected by subprotocol so far
+     */
+    public List<EventDriverMetrics> getSubprotocolMetrics() {
+        return subprotocolMetrics.values().stream().flatMap(m -> m.values().stream()).collect(Collectors.toList());
+    }
+
+    /**
+     * Sets the instrumentation level of an endpoint, including its subprotocol handlers, or of all
+     * endpoints when {@code endpointClassName} is null.
+     * @return the metrics whose level was changed
+     */
+    public List<EventDriverMetrics> setInstrumentationLevel(String endpointClassName, InstrumentationLevel level) {
+        List<EventDriverMetrics> changed = Stream.concat(endpoints.values().stream().map(EndpointDescriptor::getMetrics), getSubprotocolMetrics().stream())
+                .filter(m -> endpointClassName == null || m.getEndpointClass().getName().equals(endpointClassName))
+                .collect(Collectors.toList());
+        changed.forEach(m -> m.setLevel(level));
+        return changed;
+    }
+
+    public Collection<EndpointDescriptor> getEndpoints() {
+        return Collections.unmodifiableCollection(endpoints.values());
+    }
+
+    public MetricRegistry getMetrics() {
+        return metrics;
+    }
+
+    public MessageTracer getTracer() {
+        return tracer;
+    }
+
+    public SessionRegistry getSessions() {
+        return sessions;
+    }
+
+    public StripedExecutor getStripedExecutor() {
+        return striped;
+    }
+}
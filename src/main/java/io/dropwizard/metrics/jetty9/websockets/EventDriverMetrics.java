@@ -38,25 +38,67 @@ public class EventDriverMetrics {
     public final Optional<Counter> countOpened;
     public final Optional<Timer> timer;
     public final Optional<Meter> exceptionMetered;
+    private final Class<?> endpointClass;
+    private final String qualifier;
+    // indexed by level, so that the level is the only mutable state
+    private final Instrumentation[] instrumentations;
+    private volatile InstrumentationLevel level = InstrumentationLevel.FULL;
 
     public EventDriverMetrics(final Class<?> endpointClass, MetricRegistry metrics) {
+        this(endpointClass, null, metrics);
+    }
+
+    /**
+     * @param qualifier an optional name part after the class name, e.g. the negotiated subprotocol
+     */
+    public EventDriverMetrics(final Class<?> endpointClass, final String qualifier, MetricRegistry metrics) {
         final Class<?> klass = endpointClass;
         Metered metered = klass.getAnnotation(Metered.class);
         Timed timed = klass.getAnnotation(Timed.class);
         ExceptionMetered em = klass.getAnnotation(ExceptionMetered.class);
         this.onTextMeter = metered != null
-                ? Optional.of(metrics.meter(MetricRegistry.name(metered.name(), klass.getName(), OnMessage.class.getSimpleName())))
+                ? Optional.of(metrics.meter(MetricRegistry.name(metered.name(), klass.getName(), qualifier, OnMessage.class.getSimpleName())))
                 : Optional.empty();
         this.countOpened = metered != null
-                ? Optional.of(metrics.counter(MetricRegistry.name(metered.name(), klass.getName(), OPEN_CONNECTIONS)))
+                ? Optional.of(metrics.counter(MetricRegistry.name(metered.name(), klass.getName(), qualifier, OPEN_CONNECTIONS)))
                 : Optional.empty();
         this.timer = timed != null
-                ? Optional.of(metrics.timer(MetricRegistry.name(timed.name(), klass.getName())))
+                ? Optional.of(metrics.timer(MetricRegistry.name(timed.name(), klass.getName(), qualifier)))
                 : Optional.empty();
         this.exceptionMetered = em != null
-                ? Optional.of(metrics.meter(MetricRegistry.name(em.name(), klass.getName(), OnError.class.getSimpleName())))
+                ? Optional.of(metrics.meter(MetricRegistry.name(em.name(), klass.getName(), qualifier, OnError.class.getSimpleName())))
                 : Optional.empty();
+        this.endpointClass = endpointClass;
+        this.qualifier = qualifier;
+        this.instrumentations = new Instrumentation[InstrumentationLevel.values().length];
+        instrumentations[InstrumentationLevel.OFF.ordinal()] = Instrumentation.OFF;
+        instrumentations[InstrumentationLevel.COUNTS.ordinal()] = Instrumentation.of(onTextMeter.orElse(null), countOpened.orElse(null), exceptionMetered.orElse(null), null);
+        instrumentations[InstrumentationLevel.FULL.ordinal()] = Instrumentation.of(onTextMeter.orElse(null), countOpened.orElse(null), exceptionMetered.orElse(null), timer.orElse(null));
+    }
+
+    public Class<?> getEndpointClass() {
+        return endpointClass;
     }
+
+    public String getQualifier() {
+        return qualifier;
+    }
+
+    public InstrumentationLevel getLevel() {
+        return level;
+    }
+
+    public void setLevel(InstrumentationLevel level) {
+        this.level = level;
+    }
+
+    /**
+     * @return the instrumentation of the current level
+     */
+    public Instrumentation getInstrumentation() {
+        return instrumentations[level.ordinal()];
+    }
+
     public static final String OPEN_CONNECTIONS = "openConnections";
 
 }
@@ -0,0 +1,62 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.metrics.jetty9.websockets;
+
+import org.eclipse.jetty.websocket.api.BatchMode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.api.extensions.Frame;
+import org.eclipse.jetty.websocket.api.extensions.OutgoingFrames;
+
+/**
+ * Accounts outbound frames to the session footprint until they are written.
+ */
+class FootprintOutgoingFrames implements OutgoingFrames {
+    private final OutgoingFrames next;
+    private final SessionFootprint footprint;
+
+    FootprintOutgoingFrames(OutgoingFrames next, SessionFootprint footprint) {
+        this.next = next;
+        this.footprint = footprint;
+    }
+
+    @Override
+    public void outgoingFrame(Frame frame, WriteCallback callback, BatchMode batchMode) {
+        final int size = frame.getPayloadLength();
+        footprint.outboundQueued(size);
+        next.outgoingFrame(frame, new WriteCallback() {
+            @Override
+            public void writeFailed(Throwable x) {
+                footprint.outboundDone(size);
+                if (callback != null)
+                    callback.writeFailed(x);
+            }
+
+            @Override
+            public void writeSuccess() {
+                footprint.outboundDone(size);
+                if (callback != null)
+                    callback.writeSuccess();
+            }
+        }, batchMode);
+    }
+}
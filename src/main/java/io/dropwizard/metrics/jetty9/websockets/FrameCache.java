@@ -0,0 +1,152 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.metrics.jetty9.websockets;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A bounded cache of {@link CachedFrame}s for payloads that are expensive to produce and sent over and
+ * over, like configuration snapshots, keyed by the caller. Lookups take no lock. Entries are evicted
+ * when either {@code maxEntries} or {@code maxBytes} of retained payload is exceeded, approximately
+ * least recently used first: frames looked up since the last miss count as equally recent. Finding
+ * the eviction candidate scans the cache, which only misses pay for.
+ */
+public class FrameCache {
+    public static final String METRICS_PREFIX = "websockets.frameCache";
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final ConcurrentMap<Key, CachedFrame> frames = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+    // advanced by two per miss, so that lookups in between rank after the frames added before them
+    private volatile long generation;
+    private final Meter hits;
+    private final Meter misses;
+    private final Meter evictions;
+
+    public FrameCache(MetricRegistry metrics, int maxEntries, long maxBytes) {
+        if (maxEntries <= 0)
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.hits = metrics.meter(MetricRegistry.name(METRICS_PREFIX, "hits"));
+        this.misses = metrics.meter(MetricRegistry.name(METRICS_PREFIX, "misses"));
+        this.evictions = metrics.meter(MetricRegistry.name(METRICS_PREFIX, "evictions"));
+        metrics.register(MetricRegistry.name(METRICS_PREFIX, "bytes"), (Gauge<Long>) this::getBytes);
+        metrics.register(MetricRegistry.name(METRICS_PREFIX, "entries"), (Gauge<Integer>) this::size);
+    }
+
+    public CachedFrame text(Object key, Supplier<String> payload) {
+        return get(new Key(false, key), () -> new CachedFrame(payload.get()));
+    }
+
+    public CachedFrame binary(Object key, Supplier<byte[]> payload) {
+        return get(new Key(true, key), () -> new CachedFrame(payload.get()));
+    }
+
+    public synchronized void invalidate(Object key) {
+        remove(new Key(false, key));
+        remove(new Key(true, key));
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public int size() {
+        return frames.size();
+    }
+
+    private CachedFrame get(Key key, Supplier<CachedFrame> encoder) {
+        CachedFrame frame = frames.get(key);
+        if (frame != null) {
+            frame.touch(generation + 1);
+            hits.mark();
+            return frame;
+        }
+        misses.mark();
+        // encoded outside the lock; concurrent misses of one key both encode, the last one is kept
+        frame = encoder.get();
+        if (frame.getRetainedBytes() > maxBytes)
+            return frame;
+        synchronized (this) {
+            generation += 2;
+            frame.touch(generation);
+            remove(key);
+            frames.put(key, frame);
+            bytes.addAndGet(frame.getRetainedBytes());
+            while (frames.size() > maxEntries || bytes.get() > maxBytes)
+                evictLeastRecentlyUsed();
+        }
+        return frame;
+    }
+
+    private void evictLeastRecentlyUsed() {
+        Map.Entry<Key, CachedFrame> eldest = null;
+        for (Map.Entry<Key, CachedFrame> entry : frames.entrySet()) {
+            if (eldest == null || entry.getValue().getLastUsed() < eldest.getValue().getLastUsed())
+                eldest = entry;
+        }
+        remove(eldest.getKey());
+        evictions.mark();
+    }
+
+    private void remove(Key key) {
+        CachedFrame removed = frames.remove(key);
+        if (removed != null)
+            bytes.addAndGet(-removed.getRetainedBytes());
+    }
+
+    private static final class Key {
+        private final boolean binary;
+        private final Object id;
+
+        Key(boolean binary, Object id) {
+            this.binary = binary;
+            this.id = Objects.requireNonNull(id, "key");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key other = (Key) o;
+            return binary == other.binary && id.equals(other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * id.hashCode() + (binary ? 1 : 0);
+        }
+    }
+}
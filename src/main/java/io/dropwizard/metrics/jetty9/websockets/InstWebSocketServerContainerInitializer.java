@@ -26,6 +26,8 @@ import com.codahale.metrics.MetricRegistry;
 import io.dropwizard.jetty.MutableServletContextHandler;
 import io.dropwizard.metrics.jetty9.websockets.annotated.InstJsrServerEndpointImpl;
 import io.dropwizard.metrics.jetty9.websockets.endpoint.InstJsrServerExtendsEndpointImpl;
+import io.dropwizard.metrics.jetty9.websockets.reactive.InstReactiveEndpointImpl;
+import io.dropwizard.metrics.jetty9.websockets.tracing.MessageTracer;
 import javax.servlet.ServletException;
 import org.eclipse.jetty.websocket.common.events.EventDriverFactory;
 import org.eclipse.jetty.websocket.jsr356.server.ServerContainer;
@@ -34,6 +36,10 @@ import org.eclipse.jetty.websocket.server.WebSocketUpgradeFilter;
 
 public class InstWebSocketServerContainerInitializer {
     public static ServerContainer configureContext(final MutableServletContextHandler context, final MetricRegistry metrics) throws ServletException {
+        return configureContext(context, new EndpointRegistry(metrics, MessageTracer.DISABLED));
+    }
+
+    public static ServerContainer configureContext(final MutableServletContextHandler context, final EndpointRegistry endpoints) throws ServletException {
         WebSocketUpgradeFilter filter = WebSocketUpgradeFilter.configureContext(context);
         NativeWebSocketConfiguration wsConfig = filter.getConfiguration();
         
@@ -41,8 +47,9 @@ public class InstWebSocketServerContainerInitializer {
         EventDriverFactory edf = wsConfig.getFactory().getEventDriverFactory();
         edf.clearImplementations();
 
-        edf.addImplementation(new InstJsrServerEndpointImpl(metrics));
-        edf.addImplementation(new InstJsrServerExtendsEndpointImpl(metrics));
+        edf.addImplementation(new InstReactiveEndpointImpl(endpoints));
+        edf.addImplementation(new InstJsrServerEndpointImpl(endpoints));
+        edf.addImplementation(new InstJsrServerExtendsEndpointImpl(endpoints));
         context.addBean(wsContainer);
         context.setAttribute(javax.websocket.server.ServerContainer.class.getName(), wsContainer);
         context.setAttribute(WebSocketUpgradeFilter.class.getName(), filter);
@@ -0,0 +1,112 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.metrics.jetty9.websockets;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+
+/**
+ * The metrics an event driver records, resolved once per endpoint and level so that endpoints without
+ * metric annotations, or switched off, pay for a single no-op call.
+ */
+public interface Instrumentation {
+    /**
+     * Undoes the bookkeeping of {@link #onOpen()} when the session closes.
+     */
+    interface Opened {
+        Opened NONE = () -> {};
+
+        void close();
+    }
+
+    Instrumentation OFF = new Instrumentation() {
+        @Override
+        public void onMessage() {
+        }
+
+        @Override
+        public void onError() {
+        }
+
+        @Override
+        public Opened onOpen() {
+            return Opened.NONE;
+        }
+    };
+
+    void onMessage();
+
+    void onError();
+
+    Opened onOpen();
+
+    /**
+     * @return the instrumentation recording the given metrics, any of which may be null
+     */
+    static Instrumentation of(Meter messages, Counter openConnections, Meter errors, Timer sessions) {
+        if (messages == null && openConnections == null && errors == null && sessions == null)
+            return OFF;
+        return new Active(messages, openConnections, errors, sessions);
+    }
+
+    final class Active implements Instrumentation {
+        private final Meter messages;
+        private final Counter openConnections;
+        private final Meter errors;
+        private final Timer sessions;
+
+        private Active(Meter messages, Counter openConnections, Meter errors, Timer sessions) {
+            this.messages = messages;
+            this.openConnections = openConnections;
+            this.errors = errors;
+            this.sessions = sessions;
+        }
+
+        @Override
+        public void onMessage() {
+            if (messages != null)
+                messages.mark();
+        }
+
+        @Override
+        public void onError() {
+            if (errors != null)
+                errors.mark();
+        }
+
+        @Override
+        public Opened onOpen() {
+            if (openConnections != null)
+                openConnections.inc();
+            if (sessions == null)
+                return openConnections == null ? Opened.NONE : openConnections::dec;
+            Timer.Context ctx = sessions.time();
+            return () -> {
+                if (openConnections != null)
+                    openConnections.dec();
+                ctx.close();
+            };
+        }
+    }
+}
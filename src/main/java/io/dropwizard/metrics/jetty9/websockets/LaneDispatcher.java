@@ -0,0 +1,107 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.metrics.jetty9.websockets;
+
+import io.dropwizard.websockets.GeneralUtils.RunnableCheckException;
+import io.dropwizard.websockets.striped.StripedExecutor;
+import java.util.function.Consumer;
+import org.eclipse.jetty.util.Utf8Appendable;
+import org.eclipse.jetty.websocket.api.CloseException;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.SuspendToken;
+import org.eclipse.jetty.websocket.common.WebSocketSession;
+
+/**
+ * Hands a session's events to its lane of a {@link StripedExecutor}. A session handing an event to a
+ * lane that already holds its maximum depth stops reading, until the lane reached that event. The
+ * limit is checked before enqueueing, so each session adds at most the frames it had already read
+ * when it was suspended. Failures
+ * on the lane close the session as they would on the connection's thread: invalid UTF-8 with 1007,
+ * {@link CloseException}s (e.g. 1009 for a message too large) with their status, anything else is
+ * reported to {@code onError} and closes with 1011.
+ */
+public class LaneDispatcher {
+    private final StripedExecutor.Lane lane;
+    private final int maxDepth;
+    private final WebSocketSession session;
+    private final Consumer<Throwable> onError;
+    private SuspendToken suspended;
+
+    public LaneDispatcher(StripedExecutor striped, Object key, WebSocketSession session, Consumer<Throwable> onError) {
+        this.lane = striped.lane(key);
+        this.maxDepth = striped.getMaxDepth();
+        this.session = session;
+        this.onError = onError;
+    }
+
+    public boolean isCurrent() {
+        return lane.isCurrent();
+    }
+
+    /**
+     * Called from the connection's thread.
+     */
+    public void execute(RunnableCheckException task) {
+        boolean suspend;
+        synchronized (this) {
+            suspend = suspended == null && lane.getDepth() >= maxDepth;
+            if (suspend)
+                suspended = session.suspend();
+        }
+        try {
+            lane.execute(task, this::failed);
+        } finally {
+            // mandatory, so a stopping lane resumes the session rather than leaving it suspended
+            if (suspend)
+                lane.executeMandatory(this::resume, this::failed);
+        }
+    }
+
+    /**
+     * For events that must not be lost, such as the session closing, even while the lanes stop.
+     */
+    public void executeMandatory(RunnableCheckException task) {
+        lane.executeMandatory(task, this::failed);
+    }
+
+    private void resume() {
+        SuspendToken token;
+        synchronized (this) {
+            token = suspended;
+            suspended = null;
+        }
+        if (token != null)
+            token.resume();
+    }
+
+    private void failed(Throwable t) {
+        if (t instanceof Utf8Appendable.NotUtf8Exception)
+            session.close(StatusCode.BAD_PAYLOAD, t.getMessage());
+        else if (t instanceof CloseException)
+            session.close(((CloseException) t).getStatusCode(), t.getMessage());
+        else {
+            onError.accept(t);
+            session.close(StatusCode.SERVER_ERROR, t.getClass().getSimpleName());
+        }
+    }
+}
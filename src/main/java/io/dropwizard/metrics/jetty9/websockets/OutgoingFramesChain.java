@@ -0,0 +1,47 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.metrics.jetty9.websockets;
+
+import java.util.function.UnaryOperator;
+import org.eclipse.jetty.websocket.api.extensions.OutgoingFrames;
+import org.eclipse.jetty.websocket.common.WebSocketSession;
+import org.eclipse.jetty.websocket.common.extensions.ExtensionStack;
+
+/**
+ * Wraps the frames a session writes, as the extension stack's flusher hands them on. The stack was
+ * started before the session opens, which chained the negotiated extensions behind its next outgoing
+ * handler, so the wrapper runs ahead of the extensions and sees frames before e.g. compression. Must
+ * be called before the session is opened, so the endpoint's first sends are seen as well.
+ */
+public final class OutgoingFramesChain {
+    private OutgoingFramesChain() {
+    }
+
+    public static void install(WebSocketSession session, UnaryOperator<OutgoingFrames> wrapper) {
+        OutgoingFrames handler = session.getOutgoingHandler();
+        if (handler instanceof ExtensionStack) {
+            ExtensionStack stack = (ExtensionStack) handler;
+            stack.setNextOutgoing(wrapper.apply(stack.getNextOutgoing()));
+        }
+    }
+}
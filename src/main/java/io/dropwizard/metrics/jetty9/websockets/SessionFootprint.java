@@ -0,0 +1,102 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.metrics.jetty9.websockets;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.jetty.websocket.api.WebSocketPolicy;
+import org.eclipse.jetty.websocket.jsr356.JsrSession;
+
+/**
+ * An estimate of the heap a session retains: a fixed overhead for the driver, {@link JsrSession},
+ * policy copy and parser state, the input buffer, user properties, partially aggregated inbound
+ * messages and outbound bytes waiting to be written.
+ */
+public class SessionFootprint {
+    public static final long SESSION_OVERHEAD_BYTES = 4096;
+    public static final long USER_PROPERTY_BYTES = 64;
+
+    private final JsrSession session;
+    private final SessionRegistry.EndpointSessions endpoint;
+    private final long baseBytes;
+    private final AtomicLong inbound = new AtomicLong();
+    private final AtomicLong outbound = new AtomicLong();
+    private volatile long lastActivity = System.currentTimeMillis();
+
+    SessionFootprint(JsrSession session, SessionRegistry.EndpointSessions endpoint, WebSocketPolicy policy) {
+        this.session = session;
+        this.endpoint = endpoint;
+        this.baseBytes = SESSION_OVERHEAD_BYTES + policy.getInputBufferSize()
+                + session.getUserProperties().size() * USER_PROPERTY_BYTES;
+    }
+
+    public JsrSession getSession() {
+        return session;
+    }
+
+    public Class<?> getEndpointClass() {
+        return endpoint.getEndpointClass();
+    }
+
+    public long getLastActivity() {
+        return lastActivity;
+    }
+
+    public long getInboundBytes() {
+        return inbound.get();
+    }
+
+    public long getOutboundBytes() {
+        return outbound.get();
+    }
+
+    public long getRetainedBytes() {
+        return baseBytes + inbound.get() + outbound.get();
+    }
+
+    long getBaseBytes() {
+        return baseBytes;
+    }
+
+    /**
+     * Non-final frames are aggregated until the final one is dispatched.
+     */
+    public void inboundFrame(int size, boolean fin) {
+        lastActivity = System.currentTimeMillis();
+        if (fin)
+            endpoint.addBytes(-inbound.getAndSet(0));
+        else {
+            inbound.addAndGet(size);
+            endpoint.addBytes(size);
+        }
+    }
+
+    public void outboundQueued(int size) {
+        outbound.addAndGet(size);
+        endpoint.addBytes(size);
+    }
+
+    public void outboundDone(int size) {
+        outbound.addAndGet(-size);
+        endpoint.addBytes(-size);
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.metrics.jetty9.websockets;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.eclipse.jetty.websocket.api.WebSocketPolicy;
+import org.eclipse.jetty.websocket.common.WebSocketSession;
+import org.eclipse.jetty.websocket.jsr356.JsrSession;
+
+/**
+ * The open sessions of every instrumented endpoint. With memory accounting enabled it also keeps
+ * a {@link SessionFootprint} per session and running totals of their estimated retained bytes,
+ * published per endpoint as {@code <endpoint>.retainedBytes} and {@code <endpoint>.retainedBytesPerSession},
+ * and in total as {@code websockets.retainedBytes}. Without accounting no footprints are created.
+ */
+public class SessionRegistry {
+    public static final String METRICS_PREFIX = "websockets";
+
+    private final MetricRegistry metrics;
+    private final boolean accounting;
+    private final ConcurrentMap<Class<?>, EndpointSessions> endpoints = new ConcurrentHashMap<>();
+    private final LongAdder retainedBytes = new LongAdder();
+
+    public SessionRegistry(MetricRegistry metrics, boolean accounting) {
+        this.metrics = metrics;
+        this.accounting = accounting;
+        metrics.gauge(MetricRegistry.name(METRICS_PREFIX, "sessions"), () -> (Gauge<Integer>) this::getSessionCount);
+        if (accounting)
+            metrics.gauge(MetricRegistry.name(METRICS_PREFIX, "retainedBytes"), () -> (Gauge<Long>) this::getRetainedBytes);
+    }
+
+    public boolean isAccounting() {
+        return accounting;
+    }
+
+    /**
+     * Called before the session is opened, so that outbound accounting sees the endpoint's first sends.
+     * @return the session's footprint, or null without accounting
+     */
+    public SessionFootprint open(WebSocketSession session, Class<?> endpointClass, WebSocketPolicy policy) {
+        EndpointSessions sessions = endpoints.get(endpointClass);
+        if (sessions == null)
+            sessions = endpoints.computeIfAbsent(endpointClass, EndpointSessions::new);
+        JsrSession jsrSession = (JsrSession) session;
+        sessions.open.add(jsrSession);
+        if (!accounting)
+            return null;
+        SessionFootprint footprint = new SessionFootprint(jsrSession, sessions, policy);
+        sessions.footprints.put(jsrSession, footprint);
+        sessions.addBytes(footprint.getBaseBytes());
+        OutgoingFramesChain.install(session, next -> new FootprintOutgoingFrames(next, footprint));
+        return footprint;
+    }
+
+    public void close(WebSocketSession session, Class<?> endpointClass) {
+        EndpointSessions sessions = endpoints.get(endpointClass);
+        if (sessions == null || session == null || !sessions.open.remove(session) || !accounting)
+            return;
+        SessionFootprint footprint = sessions.footprints.remove(session);
+        // pending outbound bytes are released by their write callbacks, which fail once the session closed
+        if (footprint != null)
+            sessions.addBytes(-(footprint.getBaseBytes() + footprint.getInboundBytes()));
+    }
+
+    public int getSessionCount() {
+        return endpoints.values().stream().mapToInt(EndpointSessions::getSessionCount).sum();
+    }
+
+    public long getRetainedBytes() {
+        return retainedBytes.sum();
+    }
+
+    /**
+     * @return the bytes queued for sending but not yet written, tracked only with accounting enabled
+     */
+    public long getOutboundBytes() {
+        return endpoints.values().stream().mapToLong(EndpointSessions::getOutboundBytes).sum();
+    }
+
+    public Collection<EndpointSessions> getEndpoints() {
+        return Collections.unmodifiableCollection(endpoints.values());
+    }
+
+    /**
+     * @return the footprints of the open sessions, empty without accounting
+     */
+    public List<SessionFootprint> getSessions() {
+        List<SessionFootprint> result = new ArrayList<>();
+        endpoints.values().forEach(e -> result.addAll(e.footprints.values()));
+        return result;
+    }
+
+    public class EndpointSessions {
+        private final Class<?> endpointClass;
+        private final Set<JsrSession> open = ConcurrentHashMap.newKeySet();
+        private final ConcurrentMap<JsrSession, SessionFootprint> footprints = new ConcurrentHashMap<>();
+        private final LongAdder bytes = new LongAdder();
+
+        EndpointSessions(Class<?> endpointClass) {
+            this.endpointClass = endpointClass;
+            if (accounting) {
+                metrics.gauge(MetricRegistry.name(endpointClass.getName(), "retainedBytes"), () -> (Gauge<Long>) this::getRetainedBytes);
+                metrics.gauge(MetricRegistry.name(endpointClass.getName(), "retainedBytesPerSession"),
+                        () -> (Gauge<Long>) () -> open.isEmpty() ? 0 : getRetainedBytes() / open.size());
+            }
+        }
+
+        public Class<?> getEndpointClass() {
+            return endpointClass;
+        }
+
+        public int getSessionCount() {
+            return open.size();
+        }
+
+        public Collection<JsrSession> getOpenSessions() {
+            return Collections.unmodifiableCollection(open);
+        }
+
+        /**
+         * @return the footprints of the open sessions, empty without accounting
+         */
+        public Collection<SessionFootprint> getSessions() {
+            return Collections.unmodifiableCollection(footprints.values());
+        }
+
+        public long getRetainedBytes() {
+            return bytes.sum();
+        }
+
+        public long getOutboundBytes() {
+            return footprints.values().stream().mapToLong(SessionFootprint::getOutboundBytes).sum();
+        }
+
+        void addBytes(long delta) {
+            bytes.add(delta);
+            retainedBytes.add(delta);
+        }
+    }
+}
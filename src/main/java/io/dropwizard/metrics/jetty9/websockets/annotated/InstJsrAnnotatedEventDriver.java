@@ -22,52 +22,150 @@
  */
 package io.dropwizard.metrics.jetty9.websockets.annotated;
 
-import com.codahale.metrics.Counter;
-import com.codahale.metrics.Meter;
-import com.codahale.metrics.MetricRegistry;
-import com.codahale.metrics.Timer.Context;
+import io.dropwizard.metrics.jetty9.websockets.EndpointDescriptor;
+import io.dropwizard.metrics.jetty9.websockets.EndpointRegistry;
 import io.dropwizard.metrics.jetty9.websockets.EventDriverMetrics;
+import io.dropwizard.metrics.jetty9.websockets.Instrumentation;
+import io.dropwizard.metrics.jetty9.websockets.LaneDispatcher;
+import io.dropwizard.metrics.jetty9.websockets.SessionFootprint;
+import io.dropwizard.metrics.jetty9.websockets.SessionRegistry;
+import io.dropwizard.metrics.jetty9.websockets.tracing.MessageTracer;
+import io.dropwizard.metrics.jetty9.websockets.tracing.TraceContext;
+import io.dropwizard.metrics.jetty9.websockets.tracing.TraceScope;
+import io.dropwizard.metrics.jetty9.websockets.tracing.TracingOutgoingFrames;
+import io.dropwizard.websockets.striped.StripeKey;
+import io.dropwizard.websockets.striped.StripedExecutor;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import javax.websocket.CloseReason;
 import javax.websocket.server.ServerEndpoint;
 import javax.websocket.server.ServerEndpointConfig;
 import org.eclipse.jetty.websocket.api.WebSocketPolicy;
+import org.eclipse.jetty.websocket.common.WebSocketSession;
 import org.eclipse.jetty.websocket.jsr356.annotations.JsrEvents;
 import org.eclipse.jetty.websocket.jsr356.endpoints.EndpointInstance;
 import org.eclipse.jetty.websocket.jsr356.endpoints.JsrAnnotatedEventDriver;
 
 public class InstJsrAnnotatedEventDriver extends JsrAnnotatedEventDriver {
     private final EventDriverMetrics edm;
+    private final MessageTracer tracer;
+    private final boolean tracing;
+    private final SessionRegistry sessions;
+    private final boolean accounting;
+    private SessionFootprint footprint;
+    private Instrumentation.Opened opened;
+    private final StripedExecutor striped;
+    private final StripeKey stripeKey;
+    private LaneDispatcher lane;
 
-    public InstJsrAnnotatedEventDriver(WebSocketPolicy policy, EndpointInstance ei, JsrEvents<ServerEndpoint, ServerEndpointConfig> events, MetricRegistry metrics) {
+    public InstJsrAnnotatedEventDriver(WebSocketPolicy policy, EndpointInstance ei, JsrEvents<ServerEndpoint, ServerEndpointConfig> events, EndpointRegistry endpoints, EndpointDescriptor descriptor) {
         super(policy, ei, events);
-        this.edm = new EventDriverMetrics(metadata.getEndpointClass(), metrics);
+        this.edm = descriptor.getMetrics();
+        this.tracer = endpoints.getTracer();
+        this.tracing = tracer.isEnabled();
+        this.sessions = endpoints.getSessions();
+        this.accounting = sessions.isAccounting();
+        this.striped = endpoints.getStripedExecutor();
+        this.stripeKey = descriptor.getStripeKey();
+    }
+
+    @Override
+    public void openSession(WebSocketSession session) {
+        footprint = sessions.open(session, metadata.getEndpointClass(), getPolicy());
+        if (tracing)
+            TracingOutgoingFrames.install(session, tracer, metadata.getEndpointClass());
+        super.openSession(session);
+    }
+
+    @Override
+    public void onTextFrame(ByteBuffer buffer, boolean fin) throws IOException {
+        if (lane != null && !lane.isCurrent()) {
+            ByteBuffer copy = StripedExecutor.copy(buffer);
+            lane.execute(() -> onTextFrame(copy, fin));
+            return;
+        }
+        if (accounting)
+            footprint.inboundFrame(buffer.remaining(), fin);
+        super.onTextFrame(buffer, fin);
+    }
+
+    @Override
+    public void onBinaryFrame(ByteBuffer buffer, boolean fin) throws IOException {
+        if (lane != null && !lane.isCurrent()) {
+            ByteBuffer copy = StripedExecutor.copy(buffer);
+            lane.execute(() -> onBinaryFrame(copy, fin));
+            return;
+        }
+        if (accounting)
+            footprint.inboundFrame(buffer.remaining(), fin);
+        super.onBinaryFrame(buffer, fin);
     }
 
     @Override
     public void onTextMessage(String message) {
-        edm.onTextMeter.ifPresent(Meter::mark);
-        super.onTextMessage(message);
+        edm.getInstrumentation().onMessage();
+        if (tracing) {
+            try (TraceScope scope = tracer.scope(TraceContext.Kind.TEXT_IN, metadata.getEndpointClass(), getJsrSession().getId(), message.length())) {
+                try {
+                    super.onTextMessage(message);
+                } catch (Throwable t) {
+                    scope.fail(t);
+                    throw t;
+                }
+            }
+        } else
+            super.onTextMessage(message);
+    }
+
+    @Override
+    public void onBinaryMessage(byte[] data) {
+        if (tracing) {
+            try (TraceScope scope = tracer.scope(TraceContext.Kind.BINARY_IN, metadata.getEndpointClass(), getJsrSession().getId(), data.length)) {
+                try {
+                    super.onBinaryMessage(data);
+                } catch (Throwable t) {
+                    scope.fail(t);
+                    throw t;
+                }
+            }
+        } else
+            super.onBinaryMessage(data);
     }
 
     @Override
     public void onConnect() {
-        edm.countOpened.ifPresent(Counter::inc);
-        edm.timer.ifPresent(e -> getJsrSession().getUserProperties().put(this.getClass().getName(), e.time()));
+        opened = edm.getInstrumentation().onOpen();
+        if (striped != null && stripeKey != null)
+            lane = new LaneDispatcher(striped, stripeKey.key(getJsrSession()), getJsrSession(), this::onError);
         super.onConnect();
     }
 
     @Override
     public void onError(Throwable cause) {
-        edm.exceptionMetered.ifPresent(Meter::mark);
+        if (lane != null && !lane.isCurrent())
+            lane.executeMandatory(() -> failed(cause));
+        else
+            failed(cause);
+    }
+
+    private void failed(Throwable cause) {
+        edm.getInstrumentation().onError();
         super.onError(cause);
     }
 
     @Override
     protected void onClose(CloseReason closereason) {
-        edm.countOpened.ifPresent(Counter::dec);
-        Context ctx = (Context) getJsrSession().getUserProperties().get(this.getClass().getName());
-        if (ctx != null)
-            ctx.close();
+        if (lane != null && !lane.isCurrent())
+            // after the messages still queued on the lane
+            lane.executeMandatory(() -> closed(closereason));
+        else
+            closed(closereason);
+    }
+
+    private void closed(CloseReason closereason) {
+        if (opened != null)
+            opened.close();
+        sessions.close(session, metadata.getEndpointClass());
         super.onClose(closereason);
     }
 
@@ -23,16 +23,15 @@
 package io.dropwizard.metrics.jetty9.websockets.annotated;
 
 import com.codahale.metrics.MetricRegistry;
-import static io.dropwizard.websockets.GeneralUtils.rethrow;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import io.dropwizard.metrics.jetty9.websockets.EndpointDescriptor;
+import io.dropwizard.metrics.jetty9.websockets.EndpointRegistry;
+import io.dropwizard.metrics.jetty9.websockets.tracing.MessageTracer;
 import javax.websocket.server.ServerEndpoint;
 import javax.websocket.server.ServerEndpointConfig;
 import org.eclipse.jetty.websocket.api.WebSocketPolicy;
 import org.eclipse.jetty.websocket.common.events.EventDriver;
 import org.eclipse.jetty.websocket.common.events.EventDriverImpl;
 import org.eclipse.jetty.websocket.jsr356.annotations.JsrEvents;
-import org.eclipse.jetty.websocket.jsr356.annotations.OnMessageCallable;
 import org.eclipse.jetty.websocket.jsr356.endpoints.EndpointInstance;
 import org.eclipse.jetty.websocket.jsr356.endpoints.JsrAnnotatedEventDriver;
 import org.eclipse.jetty.websocket.jsr356.server.AnnotatedServerEndpointMetadata;
@@ -40,16 +39,20 @@ import org.eclipse.jetty.websocket.jsr356.server.JsrServerEndpointImpl;
 import org.eclipse.jetty.websocket.jsr356.server.PathParamServerEndpointConfig;
 
 public class InstJsrServerEndpointImpl implements EventDriverImpl {
-    private final MetricRegistry metrics;
+    private final EndpointRegistry endpoints;
     private final JsrServerEndpointImpl origImpl;
-    private final Method getMaxMessageSizeMethod;
 
+    /**
+     * Counts sessions on its own; implementations of the same container should share an {@link EndpointRegistry}.
+     */
     public InstJsrServerEndpointImpl(MetricRegistry metrics) {
+        this(new EndpointRegistry(metrics, MessageTracer.DISABLED));
+    }
+
+    public InstJsrServerEndpointImpl(EndpointRegistry endpoints) {
         super();
-        this.metrics = metrics;
+        this.endpoints = endpoints;
         this.origImpl = new JsrServerEndpointImpl();
-        this.getMaxMessageSizeMethod = rethrow(() -> this.origImpl.getClass().getDeclaredMethod("getMaxMessageSize",int.class,OnMessageCallable[].class)).get();
-        getMaxMessageSizeMethod.setAccessible(true);
     }
 
     @Override
@@ -61,16 +64,16 @@ public class InstJsrServerEndpointImpl implements EventDriverImpl {
         EndpointInstance ei = (EndpointInstance) websocket;
         AnnotatedServerEndpointMetadata metadata = (AnnotatedServerEndpointMetadata) ei.getMetadata();
         JsrEvents<ServerEndpoint, ServerEndpointConfig> events = new JsrEvents<>(metadata);
+        EndpointDescriptor descriptor = endpoints.get(metadata);
 
-        // Handle @OnMessage maxMessageSizes
-        int maxBinaryMessage = getMaxMessageSize(policy.getMaxBinaryMessageSize(), metadata.onBinary, metadata.onBinaryStream);
-        int maxTextMessage = getMaxMessageSize(policy.getMaxTextMessageSize(), metadata.onText, metadata.onTextStream);
-
-        policy.setMaxBinaryMessageSize(maxBinaryMessage);
-        policy.setMaxTextMessageSize(maxTextMessage);
+        // Handle @OnMessage maxMessageSizes, resolved when the endpoint was registered
+        if (descriptor.getMaxBinaryMessageSize() != EndpointDescriptor.DEFAULT_MESSAGE_SIZE)
+            policy.setMaxBinaryMessageSize(descriptor.getMaxBinaryMessageSize());
+        if (descriptor.getMaxTextMessageSize() != EndpointDescriptor.DEFAULT_MESSAGE_SIZE)
+            policy.setMaxTextMessageSize(descriptor.getMaxTextMessageSize());
 
         //////// instrumentation is here
-        JsrAnnotatedEventDriver driver = new InstJsrAnnotatedEventDriver(policy, ei, events, metrics);
+        JsrAnnotatedEventDriver driver = new InstJsrAnnotatedEventDriver(policy, ei, events, endpoints, descriptor);
         ////////
         
         // Handle @PathParam values
@@ -88,10 +91,6 @@ public class InstJsrServerEndpointImpl implements EventDriverImpl {
         return origImpl.describeRule();
     }
 
-    private int getMaxMessageSize(int defaultMaxMessageSize, OnMessageCallable... onMessages) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException {
-        return (int) getMaxMessageSizeMethod.invoke(origImpl, defaultMaxMessageSize, onMessages);        
-    }
-
     @Override
     public boolean supports(Object websocket) {
         return origImpl.supports(websocket);
@@ -23,6 +23,8 @@
 package io.dropwizard.metrics.jetty9.websockets.endpoint;
 
 import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.metrics.jetty9.websockets.EndpointRegistry;
+import io.dropwizard.metrics.jetty9.websockets.tracing.MessageTracer;
 import javax.websocket.server.ServerEndpointConfig;
 import org.eclipse.jetty.websocket.api.WebSocketPolicy;
 import org.eclipse.jetty.websocket.common.events.EventDriver;
@@ -33,11 +35,18 @@ import org.eclipse.jetty.websocket.jsr356.server.JsrServerExtendsEndpointImpl;
 import org.eclipse.jetty.websocket.jsr356.server.PathParamServerEndpointConfig;
 
 public class InstJsrServerExtendsEndpointImpl implements EventDriverImpl {
-    private final MetricRegistry metrics;
+    private final EndpointRegistry endpoints;
     private final JsrServerExtendsEndpointImpl origImpl;
 
+    /**
+     * Counts sessions on its own; implementations of the same container should share an {@link EndpointRegistry}.
+     */
     public InstJsrServerExtendsEndpointImpl(MetricRegistry metrics) {
-        this.metrics = metrics;
+        this(new EndpointRegistry(metrics, MessageTracer.DISABLED));
+    }
+
+    public InstJsrServerExtendsEndpointImpl(EndpointRegistry endpoints) {
+        this.endpoints = endpoints;
         this.origImpl = new JsrServerExtendsEndpointImpl();
     }
 
@@ -50,7 +59,7 @@ public class InstJsrServerExtendsEndpointImpl implements EventDriverImpl {
         }
         
         EndpointInstance ei = (EndpointInstance)websocket;
-        JsrEndpointEventDriver driver = new InstJsrEndpointEventDriver(policy, ei, metrics);
+        JsrEndpointEventDriver driver = new InstJsrEndpointEventDriver(policy, ei, endpoints, endpoints.get(ei.getMetadata()));
         
         ServerEndpointConfig config = (ServerEndpointConfig)ei.getConfig();
         if (config instanceof PathParamServerEndpointConfig)
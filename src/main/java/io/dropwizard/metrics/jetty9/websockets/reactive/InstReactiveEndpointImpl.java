@@ -0,0 +1,69 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.metrics.jetty9.websockets.reactive;
+
+import io.dropwizard.metrics.jetty9.websockets.EndpointRegistry;
+import io.dropwizard.websockets.reactive.ReactiveEndpoint;
+import javax.websocket.server.ServerEndpointConfig;
+import org.eclipse.jetty.websocket.api.WebSocketPolicy;
+import org.eclipse.jetty.websocket.common.events.EventDriver;
+import org.eclipse.jetty.websocket.common.events.EventDriverImpl;
+import org.eclipse.jetty.websocket.jsr356.endpoints.EndpointInstance;
+import org.eclipse.jetty.websocket.jsr356.server.PathParamServerEndpointConfig;
+
+public class InstReactiveEndpointImpl implements EventDriverImpl {
+    private final EndpointRegistry endpoints;
+
+    public InstReactiveEndpointImpl(EndpointRegistry endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    @Override
+    public EventDriver create(Object websocket, WebSocketPolicy policy)
+    {
+        EndpointInstance ei = (EndpointInstance)websocket;
+        InstReactiveEventDriver driver = new InstReactiveEventDriver(policy, ei, endpoints, endpoints.get(ei.getMetadata()));
+
+        ServerEndpointConfig config = (ServerEndpointConfig)ei.getConfig();
+        if (config instanceof PathParamServerEndpointConfig)
+        {
+            PathParamServerEndpointConfig ppconfig = (PathParamServerEndpointConfig)config;
+            driver.setPathParameters(ppconfig.getPathParamMap());
+        }
+
+        return driver;
+    }
+
+    @Override
+    public String describeRule()
+    {
+        return "class extends " + ReactiveEndpoint.class.getName();
+    }
+
+    @Override
+    public boolean supports(Object websocket)
+    {
+        return websocket instanceof EndpointInstance
+                && ((EndpointInstance)websocket).getEndpoint() instanceof ReactiveEndpoint;
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.metrics.jetty9.websockets.reactive;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.metrics.jetty9.websockets.EndpointDescriptor;
+import io.dropwizard.metrics.jetty9.websockets.EndpointRegistry;
+import io.dropwizard.metrics.jetty9.websockets.endpoint.InstJsrEndpointEventDriver;
+import io.dropwizard.websockets.reactive.ReadControl;
+import org.eclipse.jetty.websocket.api.SuspendToken;
+import org.eclipse.jetty.websocket.api.WebSocketPolicy;
+import org.eclipse.jetty.websocket.jsr356.endpoints.EndpointInstance;
+
+public class InstReactiveEventDriver extends InstJsrEndpointEventDriver implements ReadControl {
+    private final Meter readPauses;
+    private SuspendToken suspended;
+
+    public InstReactiveEventDriver(WebSocketPolicy policy, EndpointInstance ei, EndpointRegistry endpoints, EndpointDescriptor descriptor) {
+        super(policy, ei, endpoints, descriptor);
+        this.readPauses = endpoints.getMetrics().meter(MetricRegistry.name(descriptor.getEndpointClass(), "readPauses"));
+    }
+
+    @Override
+    public void onConnect() {
+        getJsrSession().getUserProperties().put(ReadControl.KEY, this);
+        super.onConnect();
+    }
+
+    @Override
+    public synchronized void pause() {
+        if (suspended != null)
+            return;
+        suspended = getJsrSession().suspend();
+        readPauses.mark();
+    }
+
+    @Override
+    public synchronized void resume() {
+        if (suspended == null)
+            return;
+        SuspendToken token = suspended;
+        suspended = null;
+        token.resume();
+    }
+}
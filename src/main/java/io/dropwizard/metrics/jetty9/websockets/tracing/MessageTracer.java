@@ -0,0 +1,63 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.metrics.jetty9.websockets.tracing;
+
+/**
+ * Decides which websocket messages are traced and where finished traces go.
+ * The instrumented drivers check {@link #isEnabled()} once per session, so a disabled
+ * tracer costs a single branch per message.
+ */
+public interface MessageTracer {
+    MessageTracer DISABLED = new MessageTracer() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public TraceContext start(TraceContext.Kind kind, Class<?> endpoint, String sessionId, long size) {
+            return null;
+        }
+
+        @Override
+        public void finish(TraceContext ctx, Throwable cause) {
+        }
+    };
+
+    boolean isEnabled();
+
+    /**
+     * @return a new context, or null when this message is not sampled
+     */
+    TraceContext start(TraceContext.Kind kind, Class<?> endpoint, String sessionId, long size);
+
+    void finish(TraceContext ctx, Throwable cause);
+
+    /**
+     * Starts a trace and makes it the {@link TraceContext#current()} context until the scope is closed.
+     */
+    default TraceScope scope(TraceContext.Kind kind, Class<?> endpoint, String sessionId, long size) {
+        TraceContext ctx = start(kind, endpoint, sessionId, size);
+        return ctx == null ? TraceScope.NOT_SAMPLED : new TraceScope(this, ctx);
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.metrics.jetty9.websockets.tracing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps the last {@code capacity} finished traces in memory. Recording is lock free;
+ * older traces are overwritten.
+ */
+public class RingBufferTraceRecorder implements TraceRecorder {
+    private final AtomicReferenceArray<TraceContext> buffer;
+    private final AtomicLong next = new AtomicLong();
+
+    public RingBufferTraceRecorder(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        this.buffer = new AtomicReferenceArray<>(capacity);
+    }
+
+    @Override
+    public void record(TraceContext ctx) {
+        buffer.set((int) (next.getAndIncrement() % buffer.length()), ctx);
+    }
+
+    /**
+     * @return the recorded traces, newest first
+     */
+    public List<TraceContext> snapshot() {
+        List<TraceContext> result = new ArrayList<>(buffer.length());
+        long last = next.get();
+        for (long i = last - 1; i >= 0 && i >= last - buffer.length(); i--) {
+            TraceContext ctx = buffer.get((int) (i % buffer.length()));
+            if (ctx != null)
+                result.add(ctx);
+        }
+        return result;
+    }
+
+    /**
+     * @return up to {@code limit} recorded traces, slowest first
+     */
+    public List<TraceContext> slowest(int limit) {
+        List<TraceContext> result = snapshot();
+        result.sort(Comparator.comparingLong(TraceContext::getDurationNanos).reversed());
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.metrics.jetty9.websockets.tracing;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+public class SamplingMessageTracer implements MessageTracer {
+    private final double samplingRate;
+    private final TraceRecorder recorder;
+
+    /**
+     * @param samplingRate fraction of messages to trace, between 0 and 1
+     */
+    public SamplingMessageTracer(double samplingRate, TraceRecorder recorder) {
+        if (samplingRate < 0 || samplingRate > 1)
+            throw new IllegalArgumentException("sampling rate must be between 0 and 1: " + samplingRate);
+        this.samplingRate = samplingRate;
+        this.recorder = recorder;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return samplingRate > 0;
+    }
+
+    @Override
+    public TraceContext start(TraceContext.Kind kind, Class<?> endpoint, String sessionId, long size) {
+        if (samplingRate < 1 && ThreadLocalRandom.current().nextDouble() >= samplingRate)
+            return null;
+        return new TraceContext(kind, endpoint, sessionId, size);
+    }
+
+    @Override
+    public void finish(TraceContext ctx, Throwable cause) {
+        ctx.finish(cause);
+        recorder.record(ctx);
+    }
+
+    public double getSamplingRate() {
+        return samplingRate;
+    }
+
+    public TraceRecorder getRecorder() {
+        return recorder;
+    }
+}
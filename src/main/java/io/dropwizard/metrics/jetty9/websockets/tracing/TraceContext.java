@@ -0,0 +1,138 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.metrics.jetty9.websockets.tracing;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A single sampled websocket message, inbound or outbound. While an inbound message is being
+ * dispatched its context is available to the handler through {@link #current()}, so handlers can
+ * tag it with their own correlation data.
+ */
+public class TraceContext {
+    public enum Kind {
+        TEXT_IN, BINARY_IN, TEXT_OUT, BINARY_OUT
+    }
+
+    private static final AtomicLong IDS = new AtomicLong();
+    private static final ThreadLocal<TraceContext> CURRENT = new ThreadLocal<>();
+
+    private final long id = IDS.incrementAndGet();
+    private final long parentId;
+    private final Kind kind;
+    private final String endpoint;
+    private final String sessionId;
+    private final long size;
+    private final long timestamp = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Object> tags = new LinkedHashMap<>();
+    private volatile long durationNanos = -1;
+    private volatile String error;
+
+    public TraceContext(Kind kind, Class<?> endpoint, String sessionId, long size) {
+        TraceContext parent = CURRENT.get();
+        this.parentId = parent != null ? parent.id : 0;
+        this.kind = kind;
+        this.endpoint = endpoint.getName();
+        this.sessionId = sessionId;
+        this.size = size;
+    }
+
+    /**
+     * @return the sampled inbound message being dispatched on this thread, or null
+     */
+    public static TraceContext current() {
+        return CURRENT.get();
+    }
+
+    static TraceContext attach(TraceContext ctx) {
+        TraceContext previous = CURRENT.get();
+        CURRENT.set(ctx);
+        return previous;
+    }
+
+    static void detach(TraceContext previous) {
+        if (previous == null)
+            CURRENT.remove();
+        else
+            CURRENT.set(previous);
+    }
+
+    public TraceContext tag(String key, Object value) {
+        synchronized (tags) {
+            tags.put(key, value);
+        }
+        return this;
+    }
+
+    public void finish(Throwable cause) {
+        this.durationNanos = System.nanoTime() - startNanos;
+        if (cause != null)
+            this.error = cause.toString();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getParentId() {
+        return parentId;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public Map<String, Object> getTags() {
+        synchronized (tags) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(tags));
+        }
+    }
+}
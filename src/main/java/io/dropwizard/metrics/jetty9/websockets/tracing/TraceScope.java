@@ -0,0 +1,56 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.metrics.jetty9.websockets.tracing;
+
+/**
+ * Makes a trace the current context while a message is handled. Handlers that throw should call
+ * {@link #fail(Throwable)} before the scope closes so the trace records the error.
+ */
+public class TraceScope implements AutoCloseable {
+    static final TraceScope NOT_SAMPLED = new TraceScope(null, null);
+
+    private final MessageTracer tracer;
+    private final TraceContext ctx;
+    private final TraceContext previous;
+    private Throwable failure;
+
+    TraceScope(MessageTracer tracer, TraceContext ctx) {
+        this.tracer = tracer;
+        this.ctx = ctx;
+        this.previous = ctx != null ? TraceContext.attach(ctx) : null;
+    }
+
+    public void fail(Throwable cause) {
+        // the shared unsampled scope records nothing
+        if (ctx != null)
+            this.failure = cause;
+    }
+
+    @Override
+    public void close() {
+        if (ctx == null)
+            return;
+        TraceContext.detach(previous);
+        tracer.finish(ctx, failure);
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.metrics.jetty9.websockets.tracing;
+
+import io.dropwizard.metrics.jetty9.websockets.OutgoingFramesChain;
+import org.eclipse.jetty.websocket.api.BatchMode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.api.extensions.Frame;
+import org.eclipse.jetty.websocket.api.extensions.OutgoingFrames;
+import org.eclipse.jetty.websocket.common.WebSocketSession;
+import org.eclipse.jetty.websocket.jsr356.JsrSession;
+
+/**
+ * Traces outbound data frames from the moment they are handed to the session until the write completes.
+ */
+public class TracingOutgoingFrames implements OutgoingFrames {
+    private final OutgoingFrames next;
+    private final MessageTracer tracer;
+    private final Class<?> endpoint;
+    private final String sessionId;
+
+    TracingOutgoingFrames(OutgoingFrames next, MessageTracer tracer, Class<?> endpoint, String sessionId) {
+        this.next = next;
+        this.tracer = tracer;
+        this.endpoint = endpoint;
+        this.sessionId = sessionId;
+    }
+
+    public static void install(WebSocketSession session, MessageTracer tracer, Class<?> endpoint) {
+        String sessionId = ((JsrSession) session).getId();
+        OutgoingFramesChain.install(session, next -> new TracingOutgoingFrames(next, tracer, endpoint, sessionId));
+    }
+
+    @Override
+    public void outgoingFrame(Frame frame, WriteCallback callback, BatchMode batchMode) {
+        TraceContext ctx = frame.getType().isData()
+                ? tracer.start(frame.getType() == Frame.Type.BINARY ? TraceContext.Kind.BINARY_OUT : TraceContext.Kind.TEXT_OUT,
+                        endpoint, sessionId, frame.getPayloadLength())
+                : null;
+        if (ctx == null) {
+            next.outgoingFrame(frame, callback, batchMode);
+            return;
+        }
+        next.outgoingFrame(frame, new WriteCallback() {
+            @Override
+            public void writeFailed(Throwable x) {
+                tracer.finish(ctx, x);
+                if (callback != null)
+                    callback.writeFailed(x);
+            }
+
+            @Override
+            public void writeSuccess() {
+                tracer.finish(ctx, null);
+                if (callback != null)
+                    callback.writeSuccess();
+            }
+        }, batchMode);
+    }
+}
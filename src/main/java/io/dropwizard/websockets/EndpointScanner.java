@@ -0,0 +1,109 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets;
+
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+import javax.websocket.server.ServerEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finds {@link ServerEndpoint} classes in packages, and their sub-packages, of directories and jars on
+ * the class path. Candidate classes are loaded without being initialized.
+ */
+class EndpointScanner {
+    private static final Logger LOG = LoggerFactory.getLogger(EndpointScanner.class);
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final ClassLoader classLoader;
+
+    EndpointScanner(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    List<Class<?>> scan(String... packages) {
+        Set<String> classNames = new TreeSet<>();
+        for (String pkg : packages) {
+            String path = pkg.replace('.', '/');
+            try {
+                Enumeration<URL> urls = classLoader.getResources(path);
+                while (urls.hasMoreElements())
+                    collect(urls.nextElement(), path, classNames);
+            } catch (IOException | URISyntaxException ex) {
+                throw new RuntimeException("can't scan package " + pkg, ex);
+            }
+        }
+        List<Class<?>> endpoints = new ArrayList<>();
+        for (String name : classNames) {
+            try {
+                Class<?> clazz = Class.forName(name, false, classLoader);
+                if (clazz.isAnnotationPresent(ServerEndpoint.class))
+                    endpoints.add(clazz);
+            } catch (ClassNotFoundException | LinkageError ex) {
+                LOG.debug("skipping {}", name, ex);
+            }
+        }
+        return endpoints;
+    }
+
+    private static void collect(URL url, String path, Set<String> classNames) throws IOException, URISyntaxException {
+        if ("file".equals(url.getProtocol())) {
+            Path root = Paths.get(url.toURI());
+            try (Stream<Path> files = Files.walk(root)) {
+                files.filter(f -> f.toString().endsWith(CLASS_SUFFIX))
+                        .forEach(f -> add(path + '/' + root.relativize(f).toString().replace(f.getFileSystem().getSeparator(), "/"), classNames));
+            }
+        } else if ("jar".equals(url.getProtocol())) {
+            URLConnection connection = url.openConnection();
+            connection.setUseCaches(false);
+            try (JarFile jar = ((JarURLConnection) connection).getJarFile()) {
+                jar.stream()
+                        .map(JarEntry::getName)
+                        .filter(name -> name.startsWith(path + '/') && name.endsWith(CLASS_SUFFIX))
+                        .forEach(name -> add(name, classNames));
+            }
+        } else
+            LOG.warn("can't scan {} for websocket endpoints", url);
+    }
+
+    private static void add(String resource, Set<String> classNames) {
+        String name = resource.substring(0, resource.length() - CLASS_SUFFIX.length()).replace('/', '.');
+        if (!name.endsWith("package-info") && !name.endsWith("module-info"))
+            classNames.add(name);
+    }
+}
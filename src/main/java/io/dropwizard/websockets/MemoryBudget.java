@@ -0,0 +1,121 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.metrics.jetty9.websockets.SessionFootprint;
+import io.dropwizard.metrics.jetty9.websockets.SessionRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.websocket.CloseReason;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A global limit on the estimated bytes retained by websocket sessions. Upgrades are refused while
+ * the limit is exceeded; optionally, sessions idle for longer than {@code idleThreshold} are closed
+ * with 1013 (try again later), least recently active first, until the excess is freed. Shedding runs
+ * every {@link #SHED_INTERVAL_MILLIS}, off the threads serving upgrades.
+ */
+public class MemoryBudget {
+    private static final Logger LOG = LoggerFactory.getLogger(MemoryBudget.class);
+    public static final String METRICS_PREFIX = "websockets.budget";
+    public static final long SHED_INTERVAL_MILLIS = 1000;
+
+    private final long maxBytes;
+    private final boolean shedIdle;
+    private final long idleThresholdMillis;
+    // replaced by registered meters once bound
+    private Meter refused = new Meter();
+    private Meter shed = new Meter();
+
+    public MemoryBudget(long maxBytes) {
+        this(maxBytes, false, Duration.ZERO);
+    }
+
+    public MemoryBudget(long maxBytes, boolean shedIdle, Duration idleThreshold) {
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        this.maxBytes = maxBytes;
+        this.shedIdle = shedIdle;
+        this.idleThresholdMillis = idleThreshold.toMillis();
+    }
+
+    void bind(MetricRegistry metrics) {
+        this.refused = metrics.meter(MetricRegistry.name(METRICS_PREFIX, "refused"));
+        this.shed = metrics.meter(MetricRegistry.name(METRICS_PREFIX, "shed"));
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public boolean isSheddingIdle() {
+        return shedIdle;
+    }
+
+    /**
+     * @return whether a new session fits in the budget
+     */
+    public boolean admit(SessionRegistry sessions) {
+        if (excess(sessions) <= 0)
+            return true;
+        refused.mark();
+        return false;
+    }
+
+    private long excess(SessionRegistry sessions) {
+        return sessions.getRetainedBytes() + SessionFootprint.SESSION_OVERHEAD_BYTES - maxBytes;
+    }
+
+    /**
+     * Closes idle sessions until a new session would fit again, if shedding is enabled.
+     * Called periodically from a single thread.
+     */
+    public void shedIdle(SessionRegistry sessions) {
+        long excess = excess(sessions);
+        if (!shedIdle || excess <= 0)
+            return;
+        long idleSince = System.currentTimeMillis() - idleThresholdMillis;
+        List<SessionFootprint> idle = sessions.getSessions().stream()
+                .filter(s -> s.getLastActivity() < idleSince)
+                .sorted(Comparator.comparingLong(SessionFootprint::getLastActivity))
+                .collect(Collectors.toList());
+        long freed = 0;
+        for (SessionFootprint s : idle) {
+            if (freed >= excess)
+                break;
+            freed += s.getRetainedBytes();
+            shed.mark();
+            try {
+                s.getSession().close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "memory budget exceeded"));
+            } catch (IOException ex) {
+                LOG.debug("failed to close idle session {}", s.getSession().getId(), ex);
+            }
+        }
+    }
+}
@@ -22,32 +22,70 @@
  */
 package io.dropwizard.websockets;
 
+import com.codahale.metrics.MetricRegistry;
 import io.dropwizard.Bundle;
+import io.dropwizard.metrics.jetty9.websockets.EndpointRegistry;
+import io.dropwizard.metrics.jetty9.websockets.FrameCache;
 import io.dropwizard.metrics.jetty9.websockets.InstWebSocketServerContainerInitializer;
+import io.dropwizard.metrics.jetty9.websockets.SessionRegistry;
+import io.dropwizard.metrics.jetty9.websockets.tracing.MessageTracer;
+import io.dropwizard.metrics.jetty9.websockets.tracing.RingBufferTraceRecorder;
+import io.dropwizard.metrics.jetty9.websockets.tracing.SamplingMessageTracer;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
+import io.dropwizard.websockets.multiplex.ChannelMultiplexer;
+import io.dropwizard.websockets.multiplex.MultiplexingEndpoint;
+import io.dropwizard.websockets.replay.ReplayBuffers;
+import io.dropwizard.websockets.striped.StripedDispatch;
+import io.dropwizard.websockets.striped.StripedExecutor;
+import io.dropwizard.websockets.subprotocol.SubprotocolConfigurator;
+import io.dropwizard.websockets.subprotocol.SubprotocolRouter;
 import org.eclipse.jetty.util.component.AbstractLifeCycle;
 import org.eclipse.jetty.util.component.LifeCycle;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
 import org.eclipse.jetty.websocket.jsr356.server.ServerContainer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.servlet.DispatcherType;
 import javax.servlet.ServletException;
 import javax.websocket.DeploymentException;
+import javax.websocket.Endpoint;
 import javax.websocket.server.ServerEndpoint;
 import javax.websocket.server.ServerEndpointConfig;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import static io.dropwizard.websockets.GeneralUtils.rethrow;
 
 public class WebsocketBundle implements Bundle {
 
     private final Collection<ServerEndpointConfig> endpointConfigs = new ArrayList<>();
+    private final Collection<ChannelMultiplexer> multiplexers = new ArrayList<>();
     private static final Logger LOG = LoggerFactory.getLogger(WebsocketBundle.class);
     volatile boolean starting = false;
     private ServerEndpointConfig.Configurator defaultConfigurator;
+    private MessageTracer tracer = MessageTracer.DISABLED;
+    private EndpointRegistry endpointRegistry;
+    private MetricRegistry metrics;
+    private ReplayBuffers replayBuffers;
+    private boolean memoryAccounting = false;
+    private MemoryBudget memoryBudget;
+    private ScheduledExecutorService shedScheduler;
+    private int maxSessions = Integer.MAX_VALUE;
+    private int maxDispatchQueueDepth = Integer.MAX_VALUE;
+    private long maxSendBacklogBytes = Long.MAX_VALUE;
+    private StripedExecutor stripedExecutor;
+    private Environment environment;
+    private FrameCache frameCache;
 
 
     public WebsocketBundle(ServerEndpointConfig.Configurator defaultConfigurator, Class<?>... endpoints) {
@@ -88,20 +126,203 @@ public class WebsocketBundle implements Bundle {
             throw new RuntimeException("can't add endpoint after starting lifecycle");
     }
 
+    /**
+     * Registers several handlers under one path. Each session is handed to the handler of the first
+     * subprotocol it requested that appears in {@code handlersBySubprotocol}, and gets that handler's
+     * metrics, qualified by the subprotocol.
+     */
+    public void addEndpoint(String path, Map<String, Class<? extends Endpoint>> handlersBySubprotocol) {
+        SubprotocolConfigurator configurator = new SubprotocolConfigurator(handlersBySubprotocol, defaultConfigurator);
+        addEndpoint(ServerEndpointConfig.Builder.create(SubprotocolRouter.class, path)
+                .subprotocols(configurator.getSubprotocols())
+                .configurator(configurator)
+                .build());
+    }
+
+    /**
+     * Registers an endpoint that carries all channels of {@code multiplexer} over one session.
+     */
+    public void addEndpoint(String path, ChannelMultiplexer multiplexer) {
+        ServerEndpointConfig.Builder bldr = ServerEndpointConfig.Builder.create(MultiplexingEndpoint.class, path);
+        if (defaultConfigurator != null) {
+            bldr = bldr.configurator(defaultConfigurator);
+        }
+        ServerEndpointConfig config = bldr.build();
+        config.getUserProperties().put(MultiplexingEndpoint.MULTIPLEXER, multiplexer);
+        multiplexers.add(multiplexer);
+        addEndpoint(config);
+    }
+
+    /**
+     * Registers every {@link ServerEndpoint} annotated class found in the given packages and their sub-packages.
+     * Classes are loaded without being initialized.
+     */
+    public void addEndpoints(String... packages) {
+        new EndpointScanner(Thread.currentThread().getContextClassLoader()).scan(packages).forEach(this::addEndpoint);
+    }
+
+    /**
+     * Traces a sample of inbound and outbound messages into an in-memory ring buffer,
+     * viewable at {@code /websocket-traces} on the admin port.
+     */
+    public void enableTracing(double samplingRate, int bufferSize) {
+        setTracer(new SamplingMessageTracer(samplingRate, new RingBufferTraceRecorder(bufferSize)));
+    }
+
+    public void setTracer(MessageTracer tracer) {
+        if (starting)
+            throw new RuntimeException("can't change tracer after starting lifecycle");
+        this.tracer = tracer;
+    }
+
+    /**
+     * Keeps recently sent messages so reconnecting clients can resume from their last acknowledged sequence.
+     * Must be called after the bundle was added to the bootstrap.
+     */
+    public ReplayBuffers enableReplay(int maxEntries, long maxBytes, Duration maxAge) {
+        if (metrics == null)
+            throw new IllegalStateException("add the bundle to the bootstrap before enabling replay");
+        if (replayBuffers == null)
+            replayBuffers = new ReplayBuffers(metrics, maxEntries, maxBytes, maxAge);
+        return replayBuffers;
+    }
+
+    public ReplayBuffers getReplayBuffers() {
+        return replayBuffers;
+    }
+
+    /**
+     * Caches frames of payloads that are expensive to produce and sent repeatedly. Must be called after the bundle was added
+     * to the bootstrap.
+     */
+    public FrameCache enableFrameCache(int maxEntries, long maxBytes) {
+        if (metrics == null)
+            throw new IllegalStateException("add the bundle to the bootstrap before enabling the frame cache");
+        if (starting)
+            throw new RuntimeException("can't enable the frame cache after starting lifecycle");
+        if (frameCache == null)
+            frameCache = new FrameCache(metrics, maxEntries, maxBytes);
+        return frameCache;
+    }
+
+    public FrameCache getFrameCache() {
+        return frameCache;
+    }
+
+    /**
+     * Creates the lanes that process the messages of {@link StripedDispatch} endpoints.
+     * Must be called after the bundle was added to the bootstrap.
+     */
+    public StripedExecutor enableStripedDispatch(int lanes) {
+        return enableStripedDispatch(lanes, StripedExecutor.DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * @param maxLaneDepth the number of queued events beyond which sessions handing work to a lane stop reading
+     */
+    public StripedExecutor enableStripedDispatch(int lanes, int maxLaneDepth) {
+        if (metrics == null)
+            throw new IllegalStateException("add the bundle to the bootstrap before enabling striped dispatch");
+        if (starting)
+            throw new RuntimeException("can't enable striped dispatch after starting lifecycle");
+        if (stripedExecutor == null) {
+            stripedExecutor = new StripedExecutor(lanes, maxLaneDepth, metrics);
+            if (environment != null)
+                environment.lifecycle().manage(stripedExecutor);
+        }
+        return stripedExecutor;
+    }
+
+    /**
+     * Publishes the estimated bytes retained by sessions, per endpoint and in total.
+     */
+    public void enableMemoryAccounting() {
+        if (starting)
+            throw new RuntimeException("can't enable memory accounting after starting lifecycle");
+        this.memoryAccounting = true;
+    }
+
+    /**
+     * Refuses upgrades, and optionally sheds idle sessions, while sessions retain more than the budget.
+     * Enables memory accounting.
+     */
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        enableMemoryAccounting();
+        this.memoryBudget = memoryBudget;
+        if (environment != null)
+            manageShedding();
+    }
+
+    private void manageShedding() {
+        if (memoryBudget.isSheddingIdle() && shedScheduler == null)
+            shedScheduler = environment.lifecycle().scheduledExecutorService("websocket-shed-%d").build();
+    }
+
+    /**
+     * Sets the limits beyond which the {@code websockets} health check reports unhealthy. Limiting the
+     * send backlog enables memory accounting.
+     */
+    public void setSaturationThresholds(int maxSessions, int maxDispatchQueueDepth, long maxSendBacklogBytes) {
+        if (starting)
+            throw new RuntimeException("can't change saturation thresholds after starting lifecycle");
+        if (maxSendBacklogBytes < Long.MAX_VALUE)
+            enableMemoryAccounting();
+        this.maxSessions = maxSessions;
+        this.maxDispatchQueueDepth = maxDispatchQueueDepth;
+        this.maxSendBacklogBytes = maxSendBacklogBytes;
+    }
+
+    /**
+     * @return the registry of endpoints and open sessions, available once the server is starting
+     */
+    public EndpointRegistry getEndpointRegistry() {
+        return endpointRegistry;
+    }
+
     @Override
     public void initialize(Bootstrap<?> bootstrap) {
+        this.metrics = bootstrap.getMetricRegistry();
     }
 
     @Override
     public void run(Environment environment) {
+        this.environment = environment;
+        if (stripedExecutor != null)
+            environment.lifecycle().manage(stripedExecutor);
+        if (memoryBudget != null)
+            manageShedding();
+        Supplier<SessionRegistry> sessions = () -> endpointRegistry == null ? null : endpointRegistry.getSessions();
+        environment.admin().addTask(new WebsocketStatsTask(sessions));
+        environment.admin().addTask(new WebsocketInstrumentationTask(() -> endpointRegistry));
+        environment.admin().addTask(new WebsocketRebalanceTask(sessions, environment.metrics()));
         environment.lifecycle().addLifeCycleListener(new AbstractLifeCycle.AbstractLifeCycleListener() {
 
             @Override
             public void lifeCycleStarting(LifeCycle event) {
                 starting = true;
+                if (tracer instanceof SamplingMessageTracer && ((SamplingMessageTracer) tracer).getRecorder() instanceof RingBufferTraceRecorder) {
+                    RingBufferTraceRecorder recorder = (RingBufferTraceRecorder) ((SamplingMessageTracer) tracer).getRecorder();
+                    environment.admin().addServlet("websocket-traces", new WebsocketTracesServlet(recorder, environment.getObjectMapper()))
+                            .addMapping("/websocket-traces");
+                }
                 try {
+                    endpointRegistry = new EndpointRegistry(environment.metrics(), tracer, memoryAccounting, stripedExecutor);
+                    if (memoryBudget != null) {
+                        memoryBudget.bind(environment.metrics());
+                        // mapped ahead of the upgrade filter, which is added by configureContext below
+                        environment.servlets().addFilter("websocket-memory-budget", new MemoryBudgetFilter(memoryBudget, endpointRegistry::getSessions))
+                                .addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST), true, "/*");
+                        if (shedScheduler != null) {
+                            SessionRegistry registry = endpointRegistry.getSessions();
+                            shedScheduler.scheduleWithFixedDelay(() -> memoryBudget.shedIdle(registry),
+                                    MemoryBudget.SHED_INTERVAL_MILLIS, MemoryBudget.SHED_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                        }
+                    }
+                    multiplexers.forEach(m -> m.bind(environment.metrics()));
+                    environment.healthChecks().register("websockets", new WebsocketHealthCheck(sessions,
+                            () -> dispatchQueueDepth(environment) + (stripedExecutor != null ? stripedExecutor.getDepth() : 0), maxSessions, maxDispatchQueueDepth, maxSendBacklogBytes));
                     ServerContainer wsContainer = InstWebSocketServerContainerInitializer.
-                            configureContext(environment.getApplicationContext(), environment.metrics());
+                            configureContext(environment.getApplicationContext(), endpointRegistry);
 
                     StringBuilder sb = new StringBuilder("Registering websocket endpoints: ")
                             .append(System.lineSeparator())
@@ -115,9 +336,22 @@ public class WebsocketBundle implements Bundle {
 
             private void addEndpoint(ServerContainer wsContainer, ServerEndpointConfig conf, StringBuilder sb) throws DeploymentException {
                 wsContainer.addEndpoint(conf);
-                sb.append(String.format("    WS      %s (%s)", conf.getPath(), conf.getEndpointClass().getName())).append(System.lineSeparator());
+                // describe the endpoint now, so connecting does no reflection
+                endpointRegistry.register(wsContainer.getServerEndpointMetadata(conf.getEndpointClass(), conf));
+                if (conf.getConfigurator() instanceof SubprotocolConfigurator) {
+                    ((SubprotocolConfigurator) conf.getConfigurator()).getHandlers().forEach((subprotocol, handler) -> {
+                        endpointRegistry.getSubprotocolMetrics(handler, subprotocol);
+                        sb.append(String.format("    WS      %s [%s] (%s)", conf.getPath(), subprotocol, handler.getName())).append(System.lineSeparator());
+                    });
+                } else
+                    sb.append(String.format("    WS      %s (%s)", conf.getPath(), conf.getEndpointClass().getName())).append(System.lineSeparator());
             }
         });
     }
 
+    private static int dispatchQueueDepth(Environment environment) {
+        ThreadPool pool = environment.getApplicationContext().getServer().getThreadPool();
+        return pool instanceof QueuedThreadPool ? ((QueuedThreadPool) pool).getQueueSize() : 0;
+    }
+
 }
@@ -0,0 +1,78 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets;
+
+import com.codahale.metrics.health.HealthCheck;
+import io.dropwizard.metrics.jetty9.websockets.SessionRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Reports unhealthy while the node is saturated: too many open sessions, too many tasks waiting for
+ * a thread to dispatch them, or too many bytes waiting to be sent. The send backlog is only known
+ * with memory accounting enabled.
+ */
+public class WebsocketHealthCheck extends HealthCheck {
+    private final Supplier<SessionRegistry> sessions;
+    private final IntSupplier dispatchQueueDepth;
+    private final int maxSessions;
+    private final int maxDispatchQueueDepth;
+    private final long maxSendBacklogBytes;
+
+    public WebsocketHealthCheck(Supplier<SessionRegistry> sessions, IntSupplier dispatchQueueDepth,
+                                int maxSessions, int maxDispatchQueueDepth, long maxSendBacklogBytes) {
+        this.sessions = sessions;
+        this.dispatchQueueDepth = dispatchQueueDepth;
+        this.maxSessions = maxSessions;
+        this.maxDispatchQueueDepth = maxDispatchQueueDepth;
+        this.maxSendBacklogBytes = maxSendBacklogBytes;
+    }
+
+    @Override
+    protected Result check() {
+        SessionRegistry registry = sessions.get();
+        if (registry == null)
+            return Result.healthy("not started");
+        List<String> exceeded = new ArrayList<>();
+        int sessionCount = registry.getSessionCount();
+        if (sessionCount > maxSessions)
+            exceeded.add(String.format("%d open sessions exceed %d", sessionCount, maxSessions));
+        int queueDepth = dispatchQueueDepth.getAsInt();
+        if (queueDepth > maxDispatchQueueDepth)
+            exceeded.add(String.format("%d queued dispatches exceed %d", queueDepth, maxDispatchQueueDepth));
+        long backlog = registry.isAccounting() ? registry.getOutboundBytes() : 0;
+        if (backlog > maxSendBacklogBytes)
+            exceeded.add(String.format("%d bytes waiting to be sent exceed %d", backlog, maxSendBacklogBytes));
+
+        ResultBuilder result = Result.builder()
+                .withDetail("sessions", sessionCount)
+                .withDetail("dispatchQueueDepth", queueDepth);
+        if (registry.isAccounting())
+            result.withDetail("sendBacklogBytes", backlog);
+        return exceeded.isEmpty()
+                ? result.healthy().build()
+                : result.unhealthy().withMessage(String.join(", ", exceeded)).build();
+    }
+}
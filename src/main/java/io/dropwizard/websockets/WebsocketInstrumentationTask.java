@@ -0,0 +1,83 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets;
+
+import com.google.common.collect.ImmutableMultimap;
+import io.dropwizard.metrics.jetty9.websockets.EndpointRegistry;
+import io.dropwizard.metrics.jetty9.websockets.EventDriverMetrics;
+import io.dropwizard.metrics.jetty9.websockets.InstrumentationLevel;
+import io.dropwizard.servlets.tasks.Task;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Switches the instrumentation {@code level} (off, counts or full) of one {@code endpoint} class, or of
+ * all endpoints, without a restart. Without a level, prints the current levels.
+ */
+public class WebsocketInstrumentationTask extends Task {
+    private final Supplier<EndpointRegistry> endpoints;
+
+    public WebsocketInstrumentationTask(Supplier<EndpointRegistry> endpoints) {
+        super("websocket-instrumentation");
+        this.endpoints = endpoints;
+    }
+
+    @Override
+    public void execute(ImmutableMultimap<String, String> parameters, PrintWriter output) throws Exception {
+        EndpointRegistry registry = endpoints.get();
+        if (registry == null) {
+            output.println("not started");
+            return;
+        }
+        String endpoint = parameters.get("endpoint").stream().findFirst().orElse(null);
+        String level = parameters.get("level").stream().findFirst().orElse(null);
+        if (level != null) {
+            InstrumentationLevel parsed = parse(level);
+            if (parsed == null) {
+                output.printf("unknown level %s, expected one of %s%n", level, Arrays.toString(InstrumentationLevel.values()));
+                return;
+            }
+            if (registry.setInstrumentationLevel(endpoint, parsed).isEmpty())
+                output.printf("no endpoint %s%n", endpoint);
+        }
+        registry.getEndpoints().forEach(e -> print(e.getMetrics(), output));
+        registry.getSubprotocolMetrics().forEach(m -> print(m, output));
+    }
+
+    private static InstrumentationLevel parse(String level) {
+        try {
+            return InstrumentationLevel.valueOf(level.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private static void print(EventDriverMetrics metrics, PrintWriter output) {
+        if (metrics.getQualifier() == null)
+            output.printf("%s %s%n", metrics.getEndpointClass().getName(), metrics.getLevel());
+        else
+            output.printf("%s (%s) %s%n", metrics.getEndpointClass().getName(), metrics.getQualifier(), metrics.getLevel());
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMultimap;
+import io.dropwizard.metrics.jetty9.websockets.SessionRegistry;
+import io.dropwizard.servlets.tasks.Task;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import javax.websocket.CloseReason;
+import javax.websocket.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Closes a random {@code percent} of the open sessions (default 10) with 1013 (try again later), spread
+ * evenly over {@code seconds} (default 10) so that clients reconnect gradually, and through the load
+ * balancer to other nodes. {@code endpoint} restricts the rebalance to one endpoint class. The closing
+ * thread is only started by the first rebalance, and ends once no closes are pending.
+ */
+public class WebsocketRebalanceTask extends Task {
+    private static final Logger LOG = LoggerFactory.getLogger(WebsocketRebalanceTask.class);
+    private static final long IDLE_SECONDS = 10;
+
+    private final Supplier<SessionRegistry> sessions;
+    private final Meter rebalanced;
+    private ScheduledExecutorService scheduler;
+
+    public WebsocketRebalanceTask(Supplier<SessionRegistry> sessions, MetricRegistry metrics) {
+        super("websocket-rebalance");
+        this.sessions = sessions;
+        this.rebalanced = metrics.meter(MetricRegistry.name(SessionRegistry.METRICS_PREFIX, "rebalanced"));
+    }
+
+    private synchronized ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread t = new Thread(r, "websocket-rebalance");
+                t.setDaemon(true);
+                return t;
+            });
+            executor.setKeepAliveTime(IDLE_SECONDS, TimeUnit.SECONDS);
+            executor.allowCoreThreadTimeOut(true);
+            scheduler = executor;
+        }
+        return scheduler;
+    }
+
+    @Override
+    public void execute(ImmutableMultimap<String, String> parameters, PrintWriter output) throws Exception {
+        SessionRegistry registry = sessions.get();
+        if (registry == null) {
+            output.println("not started");
+            return;
+        }
+        double percent = Double.parseDouble(parameter(parameters, "percent", "10"));
+        long seconds = Long.parseLong(parameter(parameters, "seconds", "10"));
+        String endpoint = parameter(parameters, "endpoint", null);
+        if (percent < 0 || percent > 100 || seconds < 0)
+            throw new IllegalArgumentException("percent must be within [0, 100] and seconds must not be negative");
+
+        List<Session> candidates = registry.getEndpoints().stream()
+                .filter(e -> endpoint == null || e.getEndpointClass().getName().equals(endpoint))
+                .flatMap(e -> e.getOpenSessions().stream())
+                .collect(Collectors.toList());
+        Collections.shuffle(candidates);
+        int count = (int) Math.round(candidates.size() * percent / 100);
+        long intervalMicros = count == 0 ? 0 : TimeUnit.SECONDS.toMicros(seconds) / count;
+        ScheduledExecutorService closer = count == 0 ? null : scheduler();
+        for (int i = 0; i < count; i++) {
+            Session session = candidates.get(i);
+            closer.schedule(() -> close(session), i * intervalMicros, TimeUnit.MICROSECONDS);
+        }
+        output.printf("closing %d of %d sessions over %d seconds%n", count, candidates.size(), seconds);
+    }
+
+    private void close(Session session) {
+        if (!session.isOpen())
+            return;
+        rebalanced.mark();
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "rebalancing"));
+        } catch (IOException ex) {
+            LOG.debug("failed to close session {}", session.getId(), ex);
+        }
+    }
+
+    private static String parameter(ImmutableMultimap<String, String> parameters, String name, String defaultValue) {
+        return parameters.get(name).stream().findFirst().orElse(defaultValue);
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets;
+
+import com.google.common.collect.ImmutableMultimap;
+import io.dropwizard.metrics.jetty9.websockets.SessionFootprint;
+import io.dropwizard.metrics.jetty9.websockets.SessionRegistry;
+import io.dropwizard.servlets.tasks.Task;
+import java.io.PrintWriter;
+import java.util.Comparator;
+import java.util.function.Supplier;
+
+/**
+ * Prints the open sessions of every endpoint, with their estimated retained and unsent bytes and the
+ * longest idle time when memory accounting is enabled.
+ */
+public class WebsocketStatsTask extends Task {
+    private final Supplier<SessionRegistry> sessions;
+
+    public WebsocketStatsTask(Supplier<SessionRegistry> sessions) {
+        super("websocket-stats");
+        this.sessions = sessions;
+    }
+
+    @Override
+    public void execute(ImmutableMultimap<String, String> parameters, PrintWriter output) throws Exception {
+        SessionRegistry registry = sessions.get();
+        if (registry == null) {
+            output.println("not started");
+            return;
+        }
+        long now = System.currentTimeMillis();
+        registry.getEndpoints().stream()
+                .sorted(Comparator.comparing(e -> e.getEndpointClass().getName()))
+                .forEach(e -> {
+                    output.printf("%s sessions=%d", e.getEndpointClass().getName(), e.getSessionCount());
+                    if (registry.isAccounting())
+                        output.printf(" retainedBytes=%d sendBacklogBytes=%d", e.getRetainedBytes(), e.getOutboundBytes());
+                    e.getSessions().stream()
+                            .mapToLong(SessionFootprint::getLastActivity)
+                            .min()
+                            .ifPresent(oldest -> output.printf(" maxIdleMillis=%d", now - oldest));
+                    output.println();
+                });
+        output.printf("total sessions=%d", registry.getSessionCount());
+        if (registry.isAccounting())
+            output.printf(" retainedBytes=%d sendBacklogBytes=%d", registry.getRetainedBytes(), registry.getOutboundBytes());
+        output.println();
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.metrics.jetty9.websockets.tracing.RingBufferTraceRecorder;
+import io.dropwizard.metrics.jetty9.websockets.tracing.TraceContext;
+import java.io.IOException;
+import java.util.List;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Admin servlet listing sampled websocket messages. {@code ?order=slowest} sorts by duration,
+ * {@code ?limit=n} caps the number of traces returned.
+ */
+public class WebsocketTracesServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+    private static final int DEFAULT_LIMIT = 100;
+
+    private final transient RingBufferTraceRecorder recorder;
+    private final transient ObjectMapper mapper;
+
+    public WebsocketTracesServlet(RingBufferTraceRecorder recorder, ObjectMapper mapper) {
+        this.recorder = recorder;
+        this.mapper = mapper;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        int limit = DEFAULT_LIMIT;
+        if (req.getParameter("limit") != null) {
+            try {
+                limit = Math.max(0, Integer.parseInt(req.getParameter("limit")));
+            } catch (NumberFormatException ex) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "limit must be a number");
+                return;
+            }
+        }
+        List<TraceContext> traces = "slowest".equals(req.getParameter("order"))
+                ? recorder.slowest(limit)
+                : recorder.snapshot();
+        if (traces.size() > limit)
+            traces = traces.subList(0, limit);
+        resp.setContentType("application/json");
+        resp.setHeader("Cache-Control", "must-revalidate,no-cache,no-store");
+        mapper.writerWithDefaultPrettyPrinter().writeValue(resp.getOutputStream(), traces);
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets.multiplex;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+
+/**
+ * One logical stream of a multiplexed session, flow controlled in both directions. At most
+ * {@code window} sent messages may be in flight; further sends are refused until writes complete.
+ * The peer may send {@code window} messages before it has to wait for credit, which is granted as
+ * the handler consumes messages: when its {@code onMessage} returns, or through {@link #credit(int)}
+ * for handlers that {@link #setAutoCredit(boolean) consume asynchronously}. A peer that exceeds its
+ * credit is disconnected.
+ */
+public class Channel {
+    private final String id;
+    private final Session session;
+    private final ChannelMultiplexer.ChannelMetrics metrics;
+    private final int window;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger inboundCredit;
+    private final AtomicInteger consumed = new AtomicInteger();
+    private volatile boolean autoCredit = true;
+    final ChannelHandler handler;
+
+    Channel(String id, Session session, ChannelMultiplexer.ChannelMetrics metrics, int window, ChannelHandler handler) {
+        this.id = id;
+        this.session = session;
+        this.metrics = metrics;
+        this.window = window;
+        this.handler = handler;
+        this.inboundCredit = new AtomicInteger(window);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public boolean isWritable() {
+        return pending.get() < window;
+    }
+
+    public int getPendingSends() {
+        return pending.get();
+    }
+
+    /**
+     * @param autoCredit false to grant the peer credit only through {@link #credit(int)}
+     */
+    public void setAutoCredit(boolean autoCredit) {
+        this.autoCredit = autoCredit;
+    }
+
+    /**
+     * Marks received messages as consumed, so the peer may send as many more. Credit is granted in
+     * batches of half the window.
+     */
+    public void credit(int messages) {
+        int total = consumed.addAndGet(messages);
+        if (total >= Math.max(1, window / 2) && consumed.compareAndSet(total, 0))
+            grant(total);
+    }
+
+    public int getInboundCredit() {
+        return inboundCredit.get();
+    }
+
+    /**
+     * @return false if the channel's send window is full and the message was not sent
+     */
+    public boolean send(String message) {
+        if (!acquire())
+            return false;
+        session.getAsyncRemote().sendText(ChannelFrames.text(id, message), this::completed);
+        return true;
+    }
+
+    /**
+     * @return false if the channel's send window is full and the message was not sent
+     */
+    public boolean sendBinary(ByteBuffer message) {
+        if (!acquire())
+            return false;
+        session.getAsyncRemote().sendBinary(ChannelFrames.binary(id, message), this::completed);
+        return true;
+    }
+
+    private boolean acquire() {
+        int current;
+        do {
+            current = pending.get();
+            if (current >= window) {
+                metrics.rejected.mark();
+                return false;
+            }
+        } while (!pending.compareAndSet(current, current + 1));
+        metrics.sent.mark();
+        return true;
+    }
+
+    private void completed(SendResult result) {
+        pending.decrementAndGet();
+    }
+
+    private void grant(int messages) {
+        inboundCredit.addAndGet(messages);
+        session.getAsyncRemote().sendText(ChannelFrames.credit(id, messages));
+    }
+
+    /**
+     * @return false if the peer sent more than its credit
+     */
+    boolean received() {
+        if (inboundCredit.decrementAndGet() < 0) {
+            metrics.overflow.mark();
+            return false;
+        }
+        metrics.received.mark();
+        return true;
+    }
+
+    void processed() {
+        if (autoCredit)
+            credit(1);
+    }
+
+    void opened() {
+        metrics.open.inc();
+        session.getAsyncRemote().sendText(ChannelFrames.credit(id, window));
+        handler.onOpen(this);
+    }
+
+    void closed() {
+        metrics.open.dec();
+        handler.onClose(this);
+    }
+}
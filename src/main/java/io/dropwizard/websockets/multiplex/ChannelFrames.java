@@ -0,0 +1,100 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets.multiplex;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Wire format of multiplexed messages. Text messages are {@code <channel>:<payload>}; binary messages
+ * start with one byte holding the length of the UTF-8 channel id, followed by the id and the payload.
+ * Channel ids starting with {@code $} are reserved; the server grants inbound credit on the
+ * {@link #CONTROL_CHANNEL} with text messages {@code $:<channel>:<messages>}.
+ */
+public final class ChannelFrames {
+    public static final char SEPARATOR = ':';
+    public static final int MAX_CHANNEL_ID_BYTES = 255;
+    public static final String CONTROL_CHANNEL = "$";
+
+    private ChannelFrames() {
+    }
+
+    static void validate(String channel) {
+        if (channel.isEmpty() || channel.startsWith(CONTROL_CHANNEL) || channel.indexOf(SEPARATOR) >= 0
+                || channel.getBytes(StandardCharsets.UTF_8).length > MAX_CHANNEL_ID_BYTES)
+            throw new IllegalArgumentException("invalid channel id: " + channel);
+    }
+
+    public static String text(String channel, String payload) {
+        return channel + SEPARATOR + payload;
+    }
+
+    /**
+     * @return a control message allowing the peer to send {@code messages} more messages on the channel
+     */
+    public static String credit(String channel, int messages) {
+        return text(CONTROL_CHANNEL, channel + SEPARATOR + messages);
+    }
+
+    /**
+     * @return the channel id, or null if the message is not multiplexed
+     */
+    public static String textChannel(String message) {
+        int sep = message.indexOf(SEPARATOR);
+        return sep > 0 ? message.substring(0, sep) : null;
+    }
+
+    public static String textPayload(String message) {
+        return message.substring(message.indexOf(SEPARATOR) + 1);
+    }
+
+    public static ByteBuffer binary(String channel, ByteBuffer payload) {
+        byte[] id = channel.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(1 + id.length + payload.remaining());
+        frame.put((byte) id.length).put(id).put(payload.duplicate());
+        frame.flip();
+        return frame;
+    }
+
+    /**
+     * @return the channel id, or null if the message is not multiplexed
+     */
+    public static String binaryChannel(ByteBuffer message) {
+        if (!message.hasRemaining())
+            return null;
+        int length = message.get(message.position()) & 0xff;
+        if (length == 0 || message.remaining() < 1 + length)
+            return null;
+        byte[] id = new byte[length];
+        ByteBuffer dup = message.duplicate();
+        dup.position(dup.position() + 1);
+        dup.get(id);
+        return new String(id, StandardCharsets.UTF_8);
+    }
+
+    public static ByteBuffer binaryPayload(ByteBuffer message) {
+        ByteBuffer dup = message.duplicate();
+        dup.position(dup.position() + 1 + (dup.get(dup.position()) & 0xff));
+        return dup.slice();
+    }
+}
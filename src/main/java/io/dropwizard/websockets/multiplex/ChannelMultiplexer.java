@@ -0,0 +1,98 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets.multiplex;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import javax.websocket.Session;
+
+/**
+ * The channels served by a {@link MultiplexingEndpoint}. Every session gets one instance of each
+ * channel handler, so a single connection per client carries all features.
+ */
+public class ChannelMultiplexer {
+    public static final String METRICS_PREFIX = "websockets.channels";
+
+    private final Map<String, Supplier<? extends ChannelHandler>> handlers = new LinkedHashMap<>();
+    private final int window;
+    private volatile Map<String, ChannelMetrics> metrics;
+    private Meter unknown;
+
+    /**
+     * @param window the maximum number of in-flight sends, and of unconsumed received messages, per channel and session
+     */
+    public ChannelMultiplexer(int window) {
+        if (window <= 0)
+            throw new IllegalArgumentException("window must be positive: " + window);
+        this.window = window;
+    }
+
+    public ChannelMultiplexer channel(String id, Supplier<? extends ChannelHandler> handlerFactory) {
+        ChannelFrames.validate(id);
+        if (metrics != null)
+            throw new IllegalStateException("can't add channel after starting lifecycle");
+        handlers.put(id, handlerFactory);
+        return this;
+    }
+
+    public void bind(MetricRegistry registry) {
+        Map<String, ChannelMetrics> bound = new HashMap<>();
+        handlers.keySet().forEach(id -> bound.put(id, new ChannelMetrics(registry, id)));
+        this.unknown = registry.meter(MetricRegistry.name(METRICS_PREFIX, "unknown"));
+        this.metrics = Collections.unmodifiableMap(bound);
+    }
+
+    Map<String, Channel> open(Session session) {
+        if (metrics == null)
+            throw new IllegalStateException("multiplexer is not bound to a metric registry");
+        Map<String, Channel> channels = new LinkedHashMap<>();
+        handlers.forEach((id, factory) -> channels.put(id, new Channel(id, session, metrics.get(id), window, factory.get())));
+        return channels;
+    }
+
+    void unknownChannel() {
+        unknown.mark();
+    }
+
+    static class ChannelMetrics {
+        final Meter received;
+        final Meter sent;
+        final Meter rejected;
+        final Meter overflow;
+        final Counter open;
+
+        ChannelMetrics(MetricRegistry registry, String channel) {
+            this.received = registry.meter(MetricRegistry.name(METRICS_PREFIX, channel, "received"));
+            this.sent = registry.meter(MetricRegistry.name(METRICS_PREFIX, channel, "sent"));
+            this.rejected = registry.meter(MetricRegistry.name(METRICS_PREFIX, channel, "rejected"));
+            this.overflow = registry.meter(MetricRegistry.name(METRICS_PREFIX, channel, "overflow"));
+            this.open = registry.counter(MetricRegistry.name(METRICS_PREFIX, channel, "open"));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets.multiplex;
+
+import com.codahale.metrics.annotation.ExceptionMetered;
+import com.codahale.metrics.annotation.Metered;
+import com.codahale.metrics.annotation.Timed;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Map;
+import javax.websocket.CloseReason;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler;
+import javax.websocket.Session;
+
+/**
+ * Carries the channels of a {@link ChannelMultiplexer} over one session. The physical connection is
+ * instrumented like any other endpoint; each channel has its own metrics.
+ */
+@Metered
+@Timed
+@ExceptionMetered
+public class MultiplexingEndpoint extends Endpoint {
+    public static final String MULTIPLEXER = ChannelMultiplexer.class.getName();
+
+    private Map<String, Channel> channels = Collections.emptyMap();
+
+    @Override
+    public void onOpen(Session session, EndpointConfig config) {
+        ChannelMultiplexer multiplexer = (ChannelMultiplexer) config.getUserProperties().get(MULTIPLEXER);
+        channels = multiplexer.open(session);
+        session.addMessageHandler(new MessageHandler.Whole<String>() {
+            @Override
+            public void onMessage(String message) {
+                Channel channel = lookup(ChannelFrames.textChannel(message), multiplexer);
+                if (channel != null && admit(session, channel)) {
+                    try {
+                        channel.handler.onMessage(channel, ChannelFrames.textPayload(message));
+                    } finally {
+                        channel.processed();
+                    }
+                }
+            }
+        });
+        session.addMessageHandler(new MessageHandler.Whole<ByteBuffer>() {
+            @Override
+            public void onMessage(ByteBuffer message) {
+                Channel channel = lookup(ChannelFrames.binaryChannel(message), multiplexer);
+                if (channel != null && admit(session, channel)) {
+                    try {
+                        channel.handler.onBinary(channel, ChannelFrames.binaryPayload(message));
+                    } finally {
+                        channel.processed();
+                    }
+                }
+            }
+        });
+        channels.values().forEach(Channel::opened);
+    }
+
+    private static boolean admit(Session session, Channel channel) {
+        if (channel.received())
+            return true;
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, "channel " + channel.getId() + " exceeded its credit"));
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+        return false;
+    }
+
+    private Channel lookup(String id, ChannelMultiplexer multiplexer) {
+        Channel channel = id != null ? channels.get(id) : null;
+        if (channel == null)
+            multiplexer.unknownChannel();
+        return channel;
+    }
+
+    @Override
+    public void onClose(Session session, CloseReason closeReason) {
+        channels.values().forEach(Channel::closed);
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets.reactive;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Publishes a session's inbound messages to a single subscriber. The connection is only read while
+ * the subscriber has outstanding demand; messages already in flight when demand runs out are
+ * buffered until it is renewed. Messages arriving while nobody is subscribed after the endpoint
+ * connected are discarded, so that an endpoint ignoring its inbound messages does not stop reading.
+ */
+class InboundPublisher<T> implements Publisher<T>, Subscription {
+    static final Subscription CANCELLED = new Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+
+    private final ReadControl readControl;
+    private final Queue<T> buffer = new ArrayDeque<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    private Subscriber<? super T> subscriber;
+    private long demand;
+    private boolean cancelled;
+    private boolean done;
+    private boolean terminated;
+    private boolean paused;
+    private boolean discarding;
+    private Throwable error;
+
+    InboundPublisher(ReadControl readControl) {
+        this.readControl = readControl;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> s) {
+        Objects.requireNonNull(s, "subscriber");
+        boolean accepted;
+        synchronized (this) {
+            accepted = subscriber == null;
+            if (accepted) {
+                subscriber = s;
+                discarding = false;
+            }
+        }
+        if (!accepted) {
+            s.onSubscribe(CANCELLED);
+            s.onError(new IllegalStateException("inbound messages can only be subscribed once"));
+            return;
+        }
+        s.onSubscribe(this);
+        drain();
+    }
+
+    @Override
+    public void request(long n) {
+        synchronized (this) {
+            if (n <= 0) {
+                if (!done) {
+                    done = true;
+                    error = new IllegalArgumentException("non-positive request: " + n);
+                }
+                buffer.clear();
+            } else
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+        }
+        drain();
+    }
+
+    @Override
+    public void cancel() {
+        synchronized (this) {
+            cancelled = true;
+            buffer.clear();
+        }
+        drain();
+    }
+
+    void onNext(T message) {
+        synchronized (this) {
+            if (cancelled || done || discarding)
+                return;
+            buffer.add(message);
+        }
+        drain();
+    }
+
+    void onComplete() {
+        synchronized (this) {
+            done = true;
+        }
+        drain();
+    }
+
+    void onError(Throwable t) {
+        synchronized (this) {
+            if (done)
+                return;
+            done = true;
+            error = t;
+        }
+        drain();
+    }
+
+    /**
+     * Called once the endpoint returned from connecting; without a subscriber, inbound messages are
+     * discarded until one subscribes.
+     */
+    void connected() {
+        synchronized (this) {
+            if (subscriber != null)
+                return;
+            discarding = true;
+            buffer.clear();
+        }
+        drain();
+    }
+
+    synchronized boolean isPaused() {
+        return paused;
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0)
+            return;
+        int missed = 1;
+        do {
+            Subscriber<? super T> s;
+            synchronized (this) {
+                s = subscriber;
+            }
+            if (s != null) {
+                T next;
+                while ((next = poll()) != null)
+                    s.onNext(next);
+                boolean complete = false;
+                Throwable failure = null;
+                synchronized (this) {
+                    if (!cancelled && !terminated && done && buffer.isEmpty()) {
+                        terminated = true;
+                        complete = error == null;
+                        failure = error;
+                    }
+                }
+                if (complete)
+                    s.onComplete();
+                else if (failure != null)
+                    s.onError(failure);
+            }
+            updateReading();
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private synchronized T poll() {
+        if (cancelled || terminated || demand == 0)
+            return null;
+        T next = buffer.poll();
+        if (next != null && demand != Long.MAX_VALUE)
+            demand--;
+        return next;
+    }
+
+    private void updateReading() {
+        boolean pause;
+        synchronized (this) {
+            pause = !cancelled && !terminated && !done && !discarding && demand == 0;
+            if (pause == paused)
+                return;
+            paused = pause;
+        }
+        if (pause)
+            readControl.pause();
+        else
+            readControl.resume();
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets.reactive;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.websocket.CloseReason;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Sends a publisher's messages to a session, requesting a new one each time an asynchronous send
+ * completes so that at most {@code window} messages are in flight. As the Reactive Streams rules
+ * require, signals return normally: a send that fails cancels the subscription and closes the session.
+ */
+class OutboundSubscriber implements Subscriber<String> {
+    private final Session session;
+    private final int window;
+    private final AtomicReference<Subscription> subscription = new AtomicReference<>();
+
+    OutboundSubscriber(Session session, int window) {
+        if (window < 1)
+            throw new IllegalArgumentException("write window must be positive");
+        this.session = session;
+        this.window = window;
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        Objects.requireNonNull(s, "subscription");
+        if (!subscription.compareAndSet(null, s)) {
+            s.cancel();
+            return;
+        }
+        s.request(window);
+    }
+
+    @Override
+    public void onNext(String message) {
+        Objects.requireNonNull(message, "message");
+        try {
+            session.getAsyncRemote().sendText(message, this::sent);
+        } catch (RuntimeException ex) {
+            cancel();
+            close(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "outbound send failed"));
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        close(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "outbound stream failed"));
+    }
+
+    @Override
+    public void onComplete() {
+        close(new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, null));
+    }
+
+    void cancel() {
+        Subscription s = subscription.getAndSet(InboundPublisher.CANCELLED);
+        if (s != null)
+            s.cancel();
+    }
+
+    private void sent(SendResult result) {
+        if (result.isOK())
+            subscription.get().request(1);
+        else
+            cancel();
+    }
+
+    private void close(CloseReason reason) {
+        subscription.set(InboundPublisher.CANCELLED);
+        if (!session.isOpen())
+            return;
+        try {
+            session.close(reason);
+        } catch (IOException | RuntimeException ex) {
+            // the connection is gone either way, and the publisher must not see the failure
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets.reactive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import javax.websocket.CloseReason;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler;
+import javax.websocket.Session;
+import org.reactivestreams.Publisher;
+
+/**
+ * An endpoint whose text messages are handled as reactive streams. Inbound messages are published
+ * with backpressure: the connection is not read while the subscriber has no outstanding demand.
+ * Inbound messages are discarded while nobody subscribed to them after {@link #connect} returned.
+ * Outbound messages are requested as their asynchronous sends complete. The session is closed when
+ * the outbound publisher completes or fails, and with 1003 (cannot accept) on a binary message.
+ */
+public abstract class ReactiveEndpoint extends Endpoint {
+    private InboundPublisher<String> inbound;
+    private OutboundSubscriber outbound;
+
+    /**
+     * @param inbound the session's text messages, for a single subscriber
+     * @return the messages to send to the session
+     */
+    protected abstract Publisher<String> connect(Session session, EndpointConfig config, Publisher<String> inbound);
+
+    /**
+     * @return the number of outbound messages that may be in flight at once
+     */
+    protected int getWriteWindow() {
+        return 1;
+    }
+
+    @Override
+    public final void onOpen(Session session, EndpointConfig config) {
+        Object readControl = session.getUserProperties().get(ReadControl.KEY);
+        inbound = new InboundPublisher<>(readControl instanceof ReadControl ? (ReadControl) readControl : ReadControl.NONE);
+        outbound = new OutboundSubscriber(session, getWriteWindow());
+        session.addMessageHandler(new MessageHandler.Whole<String>() {
+            @Override
+            public void onMessage(String message) {
+                inbound.onNext(message);
+            }
+        });
+        session.addMessageHandler(new MessageHandler.Whole<ByteBuffer>() {
+            @Override
+            public void onMessage(ByteBuffer message) {
+                try {
+                    session.close(new CloseReason(CloseReason.CloseCodes.CANNOT_ACCEPT, "binary messages are not supported"));
+                } catch (IOException ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+        });
+        connect(session, config, inbound).subscribe(outbound);
+        inbound.connected();
+    }
+
+    @Override
+    public void onClose(Session session, CloseReason closeReason) {
+        if (inbound != null)
+            inbound.onComplete();
+        if (outbound != null)
+            outbound.cancel();
+    }
+
+    @Override
+    public void onError(Session session, Throwable thr) {
+        if (inbound != null)
+            inbound.onError(thr);
+        if (outbound != null)
+            outbound.cancel();
+    }
+}
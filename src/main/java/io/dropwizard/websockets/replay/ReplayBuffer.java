@@ -0,0 +1,234 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets.replay;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongFunction;
+import javax.websocket.Session;
+
+/**
+ * A bounded buffer of recently sent messages for one topic or one logical client, so a client
+ * that reconnects can resume from the last sequence number it acknowledged instead of refetching
+ * its full state. Messages are kept as byte arrays and evicted by count, total bytes and age.
+ * A buffer that is re-created after being dropped continues above every sequence number issued
+ * before, so acknowledgements of the old buffer are misses rather than matching new messages.
+ * Appending to a buffer that was explicitly removed throws {@link IllegalStateException}.
+ */
+public class ReplayBuffer {
+    private final String key;
+    private final ReplayBuffers owner;
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    private long nextSequence;
+    private long bytes = 0;
+    private boolean retired = false;
+    private boolean removed = false;
+    private volatile long lastAccess;
+
+    ReplayBuffer(String key, ReplayBuffers owner) {
+        this.key = key;
+        this.owner = owner;
+        this.nextSequence = owner.getHighestSequence() + 1;
+        this.lastAccess = owner.now();
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long append(String text) {
+        return append(seq -> text);
+    }
+
+    /**
+     * Appends a text message rendered with its own sequence number, so it can carry it to the client.
+     *
+     * @return the sequence number of the message
+     */
+    public long append(LongFunction<String> message) {
+        owner.sweepIfDue();
+        synchronized (this) {
+            checkNotRemoved();
+            if (!retired) {
+                long seq = nextSequence;
+                add(new Entry(seq, owner.now(), false, message.apply(seq).getBytes(StandardCharsets.UTF_8)));
+                return seq;
+            }
+        }
+        // dropped for being idle while the caller held on to it
+        return owner.successor(this).append(message);
+    }
+
+    public long append(ByteBuffer binary) {
+        owner.sweepIfDue();
+        synchronized (this) {
+            checkNotRemoved();
+            if (!retired) {
+                byte[] payload = new byte[binary.remaining()];
+                binary.duplicate().get(payload);
+                long seq = nextSequence;
+                add(new Entry(seq, owner.now(), true, payload));
+                return seq;
+            }
+        }
+        return owner.successor(this).append(binary);
+    }
+
+    private void checkNotRemoved() {
+        if (removed)
+            throw new IllegalStateException("replay buffer " + key + " was removed");
+    }
+
+    private void add(Entry entry) {
+        nextSequence++;
+        owner.issued(entry.sequence);
+        entries.addLast(entry);
+        bytes += entry.payload.length;
+        owner.addBytes(entry.payload.length);
+        lastAccess = entry.timestamp;
+        evict(entry.timestamp);
+    }
+
+    /**
+     * @return the messages after {@code lastAcked}, or empty if some of them were already evicted
+     */
+    public synchronized Optional<List<Entry>> since(long lastAcked) {
+        long now = owner.now();
+        lastAccess = now;
+        evict(now);
+        long first = entries.isEmpty() ? nextSequence : entries.peekFirst().sequence;
+        if (lastAcked < first - 1 || lastAcked >= nextSequence) {
+            owner.miss();
+            return Optional.empty();
+        }
+        List<Entry> result = new ArrayList<>((int) (nextSequence - 1 - lastAcked));
+        for (Entry e : entries) {
+            if (e.sequence > lastAcked)
+                result.add(e);
+        }
+        owner.hit();
+        return Optional.of(Collections.unmodifiableList(result));
+    }
+
+    /**
+     * Sends the messages after {@code lastAcked} to the session.
+     *
+     * @return false if the buffer no longer holds all of them and the client has to resync
+     */
+    public boolean replay(long lastAcked, Session session) {
+        Optional<List<Entry>> missed = since(lastAcked);
+        missed.ifPresent(list -> list.forEach(e -> e.sendTo(session)));
+        return missed.isPresent();
+    }
+
+    public synchronized long getLastSequence() {
+        return nextSequence - 1;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    synchronized void evict(long now) {
+        long oldest = now - owner.getMaxAgeMillis();
+        while (!entries.isEmpty() && (entries.size() > owner.getMaxEntries()
+                || bytes > owner.getMaxBytes()
+                || entries.peekFirst().timestamp < oldest)) {
+            Entry e = entries.removeFirst();
+            bytes -= e.payload.length;
+            owner.addBytes(-e.payload.length);
+        }
+    }
+
+    /**
+     * Drops the buffer if it is empty and unused since {@code idleSince}; later appends go to a new buffer.
+     */
+    synchronized boolean retireIfIdle(long idleSince) {
+        if (!entries.isEmpty() || lastAccess >= idleSince)
+            return false;
+        retired = true;
+        return true;
+    }
+
+    synchronized void remove() {
+        removed = true;
+        retired = true;
+        owner.addBytes(-bytes);
+        bytes = 0;
+        entries.clear();
+    }
+
+    public static class Entry {
+        private final long sequence;
+        private final long timestamp;
+        private final boolean binary;
+        private final byte[] payload;
+
+        Entry(long sequence, long timestamp, boolean binary, byte[] payload) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.binary = binary;
+            this.payload = payload;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public boolean isBinary() {
+            return binary;
+        }
+
+        public String getText() {
+            return new String(payload, StandardCharsets.UTF_8);
+        }
+
+        public ByteBuffer getBinary() {
+            return ByteBuffer.wrap(payload).asReadOnlyBuffer();
+        }
+
+        public void sendTo(Session session) {
+            if (binary)
+                session.getAsyncRemote().sendBinary(getBinary());
+            else
+                session.getAsyncRemote().sendText(getText());
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets.replay;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * The replay buffers of an application, keyed by topic or by a client id that survives reconnects.
+ * Every buffer shares the same size and age limits; buffers that stay empty for longer than the max
+ * age are dropped by {@link #evictExpired()}, which also runs from {@link #get(String)} and from
+ * appends once per max age. A buffer {@link #remove(String) removed} explicitly refuses appends.
+ */
+public class ReplayBuffers {
+    public static final String METRICS_PREFIX = "websockets.replay";
+
+    private final ConcurrentMap<String, ReplayBuffer> buffers = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long maxAgeMillis;
+    private final LongSupplier clock;
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong lastSweep;
+    private final AtomicLong highestSequence = new AtomicLong();
+    private final Meter hits;
+    private final Meter misses;
+
+    public ReplayBuffers(MetricRegistry metrics, int maxEntries, long maxBytes, Duration maxAge) {
+        this(metrics, maxEntries, maxBytes, maxAge, System::currentTimeMillis);
+    }
+
+    ReplayBuffers(MetricRegistry metrics, int maxEntries, long maxBytes, Duration maxAge, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAge.toMillis();
+        this.clock = clock;
+        this.lastSweep = new AtomicLong(clock.getAsLong());
+        this.hits = metrics.meter(MetricRegistry.name(METRICS_PREFIX, "hits"));
+        this.misses = metrics.meter(MetricRegistry.name(METRICS_PREFIX, "misses"));
+        // a replacement instance, e.g. of a restarted environment, takes over the gauges
+        register(metrics, "bytes", (Gauge<Long>) totalBytes::get);
+        register(metrics, "buffers", (Gauge<Integer>) buffers::size);
+        register(metrics, "hitRatio", new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(hits.getCount(), hits.getCount() + misses.getCount());
+            }
+        });
+    }
+
+    private static void register(MetricRegistry metrics, String name, Gauge<?> gauge) {
+        String fullName = MetricRegistry.name(METRICS_PREFIX, name);
+        metrics.remove(fullName);
+        metrics.register(fullName, gauge);
+    }
+
+    public ReplayBuffer get(String key) {
+        sweepIfDue();
+        return buffers.computeIfAbsent(key, k -> new ReplayBuffer(k, this));
+    }
+
+    void sweepIfDue() {
+        long now = now();
+        long last = lastSweep.get();
+        if (now - last > maxAgeMillis && lastSweep.compareAndSet(last, now))
+            evictExpired();
+    }
+
+    /**
+     * @return the buffer that replaces one retired for being idle, which may still be mapped to its key
+     */
+    ReplayBuffer successor(ReplayBuffer retired) {
+        return buffers.compute(retired.getKey(), (k, b) -> b == null || b == retired ? new ReplayBuffer(k, this) : b);
+    }
+
+    public void remove(String key) {
+        ReplayBuffer removed = buffers.remove(key);
+        if (removed != null)
+            removed.remove();
+    }
+
+    /**
+     * Evicts aged messages from every buffer and drops buffers left empty and unused.
+     */
+    public void evictExpired() {
+        long now = now();
+        buffers.values().forEach(buffer -> {
+            buffer.evict(now);
+            if (buffer.retireIfIdle(now - maxAgeMillis))
+                buffers.remove(buffer.getKey(), buffer);
+        });
+    }
+
+    public long getBytes() {
+        return totalBytes.get();
+    }
+
+    int getMaxEntries() {
+        return maxEntries;
+    }
+
+    long getMaxBytes() {
+        return maxBytes;
+    }
+
+    long getMaxAgeMillis() {
+        return maxAgeMillis;
+    }
+
+    long now() {
+        return clock.getAsLong();
+    }
+
+    long getHighestSequence() {
+        return highestSequence.get();
+    }
+
+    void issued(long sequence) {
+        highestSequence.accumulateAndGet(sequence, Math::max);
+    }
+
+    void addBytes(long delta) {
+        totalBytes.addAndGet(delta);
+    }
+
+    void hit() {
+        hits.mark();
+    }
+
+    void miss() {
+        misses.mark();
+    }
+}
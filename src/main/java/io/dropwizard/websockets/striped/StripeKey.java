@@ -0,0 +1,53 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets.striped;
+
+import javax.websocket.Session;
+
+/**
+ * Chooses the lane of a session when it opens. Implementations need a public no-arg constructor.
+ */
+public interface StripeKey {
+    Object key(Session session);
+
+    class BySession implements StripeKey {
+        @Override
+        public Object key(Session session) {
+            return session.getId();
+        }
+    }
+
+    class ByPathParameter implements StripeKey {
+        private final String name;
+
+        public ByPathParameter(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Object key(Session session) {
+            String value = session.getPathParameters().get(name);
+            return value != null ? value : session.getId();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets.striped;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.websockets.GeneralUtils.RunnableCheckException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A fixed set of single-threaded lanes. Work submitted to one lane runs in submission order; lanes
+ * run in parallel. Sessions handing work to a lane deeper than {@code maxDepth} stop reading until
+ * the lane caught up; lanes falling behind show up in the {@code websockets.lanes.<lane>.depth} and
+ * {@code websockets.lanes.imbalance} (deepest lane over mean depth) gauges.
+ */
+public class StripedExecutor implements Managed {
+    public static final String METRICS_PREFIX = "websockets.lanes";
+    public static final int DEFAULT_MAX_DEPTH = 1024;
+    private static final long STOP_TIMEOUT_SECONDS = 10;
+
+    private final Lane[] lanes;
+    private final int maxDepth;
+
+    public StripedExecutor(int lanes, MetricRegistry metrics) {
+        this(lanes, DEFAULT_MAX_DEPTH, metrics);
+    }
+
+    public StripedExecutor(int lanes, int maxDepth, MetricRegistry metrics) {
+        if (lanes < 1)
+            throw new IllegalArgumentException("at least one lane is required");
+        if (maxDepth < 1)
+            throw new IllegalArgumentException("maxDepth must be positive: " + maxDepth);
+        this.maxDepth = maxDepth;
+        this.lanes = new Lane[lanes];
+        for (int i = 0; i < lanes; i++) {
+            Lane lane = new Lane(i);
+            this.lanes[i] = lane;
+            metrics.gauge(MetricRegistry.name(METRICS_PREFIX, Integer.toString(i), "depth"), () -> (Gauge<Integer>) lane::getDepth);
+        }
+        metrics.gauge(MetricRegistry.name(METRICS_PREFIX, "depth"), () -> (Gauge<Integer>) this::getDepth);
+        metrics.gauge(MetricRegistry.name(METRICS_PREFIX, "imbalance"), () -> (Gauge<Double>) this::getImbalance);
+    }
+
+    public Lane lane(Object key) {
+        int h = key.hashCode();
+        return lanes[Math.floorMod(h ^ (h >>> 16), lanes.length)];
+    }
+
+    /**
+     * @return the lane depth beyond which sessions handing work to the lane stop reading
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public int getDepth() {
+        return Arrays.stream(lanes).mapToInt(Lane::getDepth).sum();
+    }
+
+    /**
+     * @return the deepest lane's depth over the mean depth; 1 is balanced, 0 idle
+     */
+    public double getImbalance() {
+        int total = 0;
+        int max = 0;
+        for (Lane lane : lanes) {
+            int depth = lane.getDepth();
+            total += depth;
+            max = Math.max(max, depth);
+        }
+        return total == 0 ? 0 : max * (double) lanes.length / total;
+    }
+
+    @Override
+    public void start() {
+    }
+
+    /**
+     * Lets the lanes drain in parallel until a common deadline. Work that must not be lost, such as
+     * closing sessions, still runs when it was queued past the deadline.
+     */
+    @Override
+    public void stop() throws InterruptedException {
+        for (Lane lane : lanes)
+            lane.executor.shutdown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(STOP_TIMEOUT_SECONDS);
+        for (Lane lane : lanes)
+            lane.executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        for (Lane lane : lanes) {
+            for (Runnable task : lane.executor.shutdownNow()) {
+                if (((Task) task).mandatory)
+                    task.run();
+            }
+        }
+    }
+
+    /**
+     * Frame payloads are only valid until the driver returns, so they are copied before being handed to a lane.
+     * The copy is per frame: a message split into many partial frames costs one allocation per frame,
+     * which is why striped endpoints should keep messages small, e.g. with {@code maxMessageSize}.
+     */
+    public static ByteBuffer copy(ByteBuffer buffer) {
+        if (buffer == null)
+            return null;
+        ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+        copy.put(buffer.slice());
+        copy.flip();
+        return copy;
+    }
+
+    public static class Lane {
+        private final ThreadPoolExecutor executor;
+        private volatile Thread thread;
+
+        private Lane(int index) {
+            this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "websocket-lane-" + index);
+                t.setDaemon(true);
+                thread = t;
+                return t;
+            });
+        }
+
+        /**
+         * @return whether the calling thread is this lane's, i.e. work can run without being handed off
+         */
+        public boolean isCurrent() {
+            return Thread.currentThread() == thread;
+        }
+
+        public int getDepth() {
+            return executor.getQueue().size();
+        }
+
+        /**
+         * @throws RejectedExecutionException once the lanes are stopping
+         */
+        public void execute(RunnableCheckException task, Consumer<Throwable> onFailure) {
+            executor.execute(new Task(task, onFailure, false));
+        }
+
+        /**
+         * Like {@link #execute}, but the task also runs while the lanes are stopping: on the calling
+         * thread once they no longer accept work, or on the stopping thread if still queued at the deadline.
+         */
+        public void executeMandatory(RunnableCheckException task, Consumer<Throwable> onFailure) {
+            Task t = new Task(task, onFailure, true);
+            try {
+                executor.execute(t);
+            } catch (RejectedExecutionException ex) {
+                t.run();
+            }
+        }
+    }
+
+    private static class Task implements Runnable {
+        private final RunnableCheckException task;
+        private final Consumer<Throwable> onFailure;
+        private final boolean mandatory;
+
+        Task(RunnableCheckException task, Consumer<Throwable> onFailure, boolean mandatory) {
+            this.task = task;
+            this.onFailure = onFailure;
+            this.mandatory = mandatory;
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                onFailure.accept(t);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets.subprotocol;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.websocket.Endpoint;
+import javax.websocket.HandshakeResponse;
+import javax.websocket.server.HandshakeRequest;
+import javax.websocket.server.ServerEndpoint;
+import javax.websocket.server.ServerEndpointConfig;
+
+/**
+ * Negotiates the first subprotocol requested by the client that has a handler, and creates a
+ * {@link SubprotocolRouter} that delegates the session to that handler. Handlers are created, and
+ * handshakes checked, by the handler configurator, so handlers get the same injection as other endpoints.
+ * Handlers must extend {@link Endpoint}; annotated endpoints are refused.
+ */
+public class SubprotocolConfigurator extends ServerEndpointConfig.Configurator {
+    private final Map<String, Class<? extends Endpoint>> handlers;
+    private final ServerEndpointConfig.Configurator handlerConfigurator;
+    private final ConcurrentMap<String, ServerEndpointConfig> handlerConfigs = new ConcurrentHashMap<>();
+
+    public SubprotocolConfigurator(Map<String, Class<? extends Endpoint>> handlers) {
+        this(handlers, null);
+    }
+
+    /**
+     * @param handlerConfigurator creates the handlers, or null for the container's default
+     */
+    public SubprotocolConfigurator(Map<String, Class<? extends Endpoint>> handlers, ServerEndpointConfig.Configurator handlerConfigurator) {
+        if (handlers.isEmpty())
+            throw new IllegalArgumentException("at least one subprotocol handler is required");
+        handlers.forEach((subprotocol, handler) -> {
+            // the map may have been filled through raw types
+            if (!Endpoint.class.isAssignableFrom(handler) || handler.isAnnotationPresent(ServerEndpoint.class))
+                throw new IllegalArgumentException("handler of " + subprotocol + " must extend " + Endpoint.class.getName()
+                        + " without being annotated: " + handler.getName());
+        });
+        this.handlers = Collections.unmodifiableMap(new LinkedHashMap<>(handlers));
+        this.handlerConfigurator = handlerConfigurator != null ? handlerConfigurator : new ServerEndpointConfig.Configurator();
+    }
+
+    public Map<String, Class<? extends Endpoint>> getHandlers() {
+        return handlers;
+    }
+
+    public List<String> getSubprotocols() {
+        return new ArrayList<>(handlers.keySet());
+    }
+
+    ServerEndpointConfig.Configurator getHandlerConfigurator() {
+        return handlerConfigurator;
+    }
+
+    /**
+     * @return the config the handler of {@code subprotocol} is opened with, derived from the router's
+     */
+    ServerEndpointConfig getHandlerConfig(String subprotocol, ServerEndpointConfig routerConfig) {
+        ServerEndpointConfig config = handlerConfigs.get(subprotocol);
+        if (config != null)
+            return config;
+        return handlerConfigs.computeIfAbsent(subprotocol, p -> {
+            ServerEndpointConfig c = ServerEndpointConfig.Builder.create(handlers.get(p), routerConfig.getPath())
+                    .subprotocols(Collections.singletonList(p))
+                    .extensions(routerConfig.getExtensions())
+                    .encoders(routerConfig.getEncoders())
+                    .decoders(routerConfig.getDecoders())
+                    .configurator(handlerConfigurator)
+                    .build();
+            c.getUserProperties().putAll(routerConfig.getUserProperties());
+            return c;
+        });
+    }
+
+    @Override
+    public String getNegotiatedSubprotocol(List<String> supported, List<String> requested) {
+        for (String subprotocol : requested) {
+            if (handlers.containsKey(subprotocol))
+                return subprotocol;
+        }
+        return "";
+    }
+
+    @Override
+    public boolean checkOrigin(String originHeaderValue) {
+        return handlerConfigurator.checkOrigin(originHeaderValue);
+    }
+
+    @Override
+    public void modifyHandshake(ServerEndpointConfig sec, HandshakeRequest request, HandshakeResponse response) {
+        handlerConfigurator.modifyHandshake(sec, request, response);
+    }
+
+    @Override
+    public <T> T getEndpointInstance(Class<T> endpointClass) throws InstantiationException {
+        if (!endpointClass.isAssignableFrom(SubprotocolRouter.class))
+            throw new InstantiationException(endpointClass.getName() + " is not a " + SubprotocolRouter.class.getName());
+        return endpointClass.cast(new SubprotocolRouter(this));
+    }
+}
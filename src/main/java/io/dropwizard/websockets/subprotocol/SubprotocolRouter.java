@@ -0,0 +1,87 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets.subprotocol;
+
+import java.io.IOException;
+import java.util.Map;
+import javax.websocket.CloseReason;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.Session;
+import javax.websocket.server.ServerEndpointConfig;
+
+/**
+ * Hands a session over to the endpoint registered for its negotiated subprotocol. Sessions that did
+ * not negotiate a known subprotocol are closed.
+ */
+public class SubprotocolRouter extends Endpoint {
+    private final Map<String, Class<? extends Endpoint>> handlers;
+    private final SubprotocolConfigurator configurator;
+    private Endpoint delegate;
+
+    SubprotocolRouter(SubprotocolConfigurator configurator) {
+        this.handlers = configurator.getHandlers();
+        this.configurator = configurator;
+    }
+
+    public Class<? extends Endpoint> getHandlerClass(String subprotocol) {
+        return handlers.get(subprotocol);
+    }
+
+    @Override
+    public void onOpen(Session session, EndpointConfig config) {
+        String subprotocol = session.getNegotiatedSubprotocol();
+        Class<? extends Endpoint> handler = handlers.get(subprotocol);
+        if (handler == null) {
+            close(session, "unsupported subprotocol");
+            return;
+        }
+        try {
+            delegate = configurator.getHandlerConfigurator().getEndpointInstance(handler);
+        } catch (InstantiationException ex) {
+            close(session, "unable to create handler");
+            throw new RuntimeException(ex);
+        }
+        delegate.onOpen(session, configurator.getHandlerConfig(subprotocol, (ServerEndpointConfig) config));
+    }
+
+    @Override
+    public void onClose(Session session, CloseReason closeReason) {
+        if (delegate != null)
+            delegate.onClose(session, closeReason);
+    }
+
+    @Override
+    public void onError(Session session, Throwable thr) {
+        if (delegate != null)
+            delegate.onError(session, thr);
+    }
+
+    private static void close(Session session, String reason) {
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.PROTOCOL_ERROR, reason));
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.metrics.jetty9.websockets;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.jetty.MutableServletContextHandler;
+import io.dropwizard.metrics.jetty9.websockets.tracing.MessageTracer;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import javax.websocket.ClientEndpointConfig;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler;
+import javax.websocket.Session;
+import javax.websocket.server.ServerContainer;
+import javax.websocket.server.ServerEndpointConfig;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.glassfish.tyrus.client.ClientManager;
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CachedFrameTest {
+    static final FrameCache CACHE = new FrameCache(new MetricRegistry(), 10, 1024);
+
+    private final ClientManager client = ClientManager.createClient();
+    private Server server;
+    private int port;
+
+    public static class CachedServer extends Endpoint {
+        @Override
+        public void onOpen(Session session, EndpointConfig config) {
+            CACHE.text("welcome", () -> "welcome").send(session, result -> {});
+            CACHE.binary("snapshot", () -> new byte[]{1, 2, 3}).send(session, result -> {});
+        }
+    }
+
+    public static class PartialServer extends Endpoint {
+        static volatile CompletableFuture<Throwable> refused;
+
+        @Override
+        public void onOpen(Session session, EndpointConfig config) {
+            try {
+                session.getBasicRemote().sendText("first ", false);
+                try {
+                    CACHE.text("welcome", () -> "welcome").send(session, result -> {});
+                    refused.complete(null);
+                } catch (IllegalStateException ex) {
+                    refused.complete(ex);
+                }
+                session.getBasicRemote().sendText("half", true);
+            } catch (IOException ex) {
+                refused.completeExceptionally(ex);
+            }
+        }
+    }
+
+    private static class Client extends Endpoint {
+        final BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onOpen(Session session, EndpointConfig config) {
+            session.addMessageHandler(new MessageHandler.Whole<String>() {
+                @Override
+                public void onMessage(String message) {
+                    received.add(message);
+                }
+            });
+            session.addMessageHandler(new MessageHandler.Whole<ByteBuffer>() {
+                @Override
+                public void onMessage(ByteBuffer message) {
+                    received.add(message);
+                }
+            });
+        }
+    }
+
+    @Before
+    public void start() throws Exception {
+        server = new Server(0);
+        MutableServletContextHandler context = new MutableServletContextHandler();
+        context.setContextPath("/");
+        server.setHandler(context);
+        ServerContainer container = InstWebSocketServerContainerInitializer.configureContext(context, new EndpointRegistry(new MetricRegistry(), MessageTracer.DISABLED));
+        container.addEndpoint(ServerEndpointConfig.Builder.create(CachedServer.class, "/cached").build());
+        container.addEndpoint(ServerEndpointConfig.Builder.create(PartialServer.class, "/partial").build());
+        server.start();
+        port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+    }
+
+    @After
+    public void stop() throws Exception {
+        client.shutdown();
+        server.stop();
+    }
+
+    private Session connect(Client endpoint, String path) throws Exception {
+        return client.connectToServer(endpoint, ClientEndpointConfig.Builder.create().build(), URI.create("ws://localhost:" + port + path));
+    }
+
+    @Test
+    public void testSendsCachedFramesOverConnection() throws Exception {
+        Client endpoint = new Client();
+        try (Session session = connect(endpoint, "/cached")) {
+            assertEquals("welcome", endpoint.received.poll(5, SECONDS));
+            assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 3}), endpoint.received.poll(5, SECONDS));
+        }
+        // the shared buffer was not consumed by sending
+        assertEquals(3, CACHE.binary("snapshot", () -> new byte[0]).getSize());
+        Client again = new Client();
+        try (Session session = connect(again, "/cached")) {
+            assertEquals("welcome", again.received.poll(5, SECONDS));
+            assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 3}), again.received.poll(5, SECONDS));
+        }
+    }
+
+    @Test
+    public void testRefusedWhileAPartialMessageIsSent() throws Exception {
+        PartialServer.refused = new CompletableFuture<>();
+        Client endpoint = new Client();
+        try (Session session = connect(endpoint, "/partial")) {
+            assertTrue(PartialServer.refused.get(5, SECONDS) instanceof IllegalStateException);
+            // the fragmented message arrives intact
+            assertEquals("first half", endpoint.received.poll(5, SECONDS));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.metrics.jetty9.websockets;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.metrics.jetty9.websockets.tracing.MessageTracer;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import javax.websocket.DeploymentException;
+import javax.websocket.OnMessage;
+import javax.websocket.server.ServerEndpoint;
+import javax.websocket.server.ServerEndpointConfig;
+import org.eclipse.jetty.websocket.jsr356.annotations.AnnotatedEndpointScanner;
+import org.eclipse.jetty.websocket.jsr356.server.AnnotatedServerEndpointMetadata;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class EndpointRegistryTest {
+    @ServerEndpoint("/sized")
+    public static class SizedEndpoint {
+        @OnMessage(maxMessageSize = 1234)
+        public void onText(String message) {
+        }
+
+        @OnMessage
+        public void onBinary(ByteBuffer message) {
+        }
+    }
+
+    @ServerEndpoint("/streaming")
+    public static class StreamingEndpoint {
+        @OnMessage(maxMessageSize = 4321)
+        public void onBinary(InputStream message) {
+        }
+    }
+
+    private final EndpointRegistry registry = new EndpointRegistry(new MetricRegistry(), MessageTracer.DISABLED);
+
+    @Test
+    public void testMaxMessageSizeFromOnMessage() throws DeploymentException {
+        EndpointDescriptor descriptor = registry.register(metadata(SizedEndpoint.class));
+        assertEquals(1234, descriptor.getMaxTextMessageSize());
+        assertEquals(EndpointDescriptor.DEFAULT_MESSAGE_SIZE, descriptor.getMaxBinaryMessageSize());
+    }
+
+    @Test
+    public void testMaxMessageSizeOfStreams() throws DeploymentException {
+        EndpointDescriptor descriptor = registry.register(metadata(StreamingEndpoint.class));
+        assertEquals(EndpointDescriptor.DEFAULT_MESSAGE_SIZE, descriptor.getMaxTextMessageSize());
+        assertEquals(4321, descriptor.getMaxBinaryMessageSize());
+    }
+
+    @Test
+    public void testGetRegistersOnFirstConnect() throws DeploymentException {
+        assertTrue(registry.getEndpoints().isEmpty());
+        EndpointDescriptor descriptor = registry.get(metadata(SizedEndpoint.class));
+        assertEquals(SizedEndpoint.class, descriptor.getEndpointClass());
+        assertEquals(1, registry.getEndpoints().size());
+        assertSame(descriptor, registry.get(metadata(SizedEndpoint.class)));
+    }
+
+    @Test
+    public void testSubprotocolMetricsPerHandlerAndSubprotocol() {
+        EventDriverMetrics echo = registry.getSubprotocolMetrics(SizedEndpoint.class, "echo");
+        assertSame(echo, registry.getSubprotocolMetrics(SizedEndpoint.class, "echo"));
+        assertNotSame(echo, registry.getSubprotocolMetrics(SizedEndpoint.class, "chat"));
+        assertEquals("echo", echo.getQualifier());
+    }
+
+    // what ServerContainer.getServerEndpointMetadata does for annotated endpoints
+    private static AnnotatedServerEndpointMetadata metadata(Class<?> endpoint) throws DeploymentException {
+        ServerEndpointConfig config = ServerEndpointConfig.Builder.create(endpoint, endpoint.getAnnotation(ServerEndpoint.class).value()).build();
+        AnnotatedServerEndpointMetadata metadata = new AnnotatedServerEndpointMetadata(endpoint, config);
+        new AnnotatedEndpointScanner<>(metadata).scan();
+        return metadata;
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.metrics.jetty9.websockets;
+
+import com.codahale.metrics.MetricRegistry;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class FrameCacheTest {
+    private final MetricRegistry metrics = new MetricRegistry();
+
+    @Test
+    public void testRepeatedPayloadIsProducedOnce() {
+        FrameCache cache = new FrameCache(metrics, 10, 1024);
+        CachedFrame welcome = cache.text("welcome", () -> "welcome");
+        assertSame(welcome, cache.text("welcome", () -> {
+            throw new AssertionError("produced twice");
+        }));
+        assertTrue(welcome.isText());
+        assertEquals(7, welcome.getSize());
+        assertEquals(1, metrics.meter("websockets.frameCache.hits").getCount());
+        assertEquals(1, metrics.meter("websockets.frameCache.misses").getCount());
+        // the cached string, two bytes per character
+        assertEquals(14L, metrics.getGauges().get("websockets.frameCache.bytes").getValue());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvictedOverBytes() {
+        FrameCache cache = new FrameCache(metrics, 10, 10);
+        CachedFrame first = cache.binary("first", () -> new byte[4]);
+        cache.binary("second", () -> new byte[4]);
+        cache.binary("first", () -> new byte[4]);
+        cache.binary("third", () -> new byte[4]);
+        assertEquals(2, cache.size());
+        assertEquals(8, cache.getBytes());
+        assertSame(first, cache.binary("first", () -> new byte[4]));
+        assertEquals(1, metrics.meter("websockets.frameCache.evictions").getCount());
+    }
+
+    @Test
+    public void testTextAndBinaryKeysAreSeparate() {
+        FrameCache cache = new FrameCache(metrics, 10, 1024);
+        CachedFrame text = cache.text("config", () -> "{\"v\":3}");
+        CachedFrame binary = cache.binary("config", () -> new byte[]{3});
+        assertNotSame(text, binary);
+        cache.invalidate("config");
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getBytes());
+    }
+
+    @Test
+    public void testBinaryPayloadIsAccountedOnHeap() {
+        FrameCache cache = new FrameCache(metrics, 10, 1024);
+        CachedFrame frame = cache.binary("snapshot", () -> new byte[]{1, 2, 3});
+        assertFalse(frame.isText());
+        assertEquals(3, frame.getRetainedBytes());
+        assertEquals(3, cache.getBytes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNonPositiveLimits() {
+        new FrameCache(metrics, 0, 1024);
+    }
+
+    @Test
+    public void testOversizedPayloadIsNotCached() {
+        FrameCache cache = new FrameCache(metrics, 10, 4);
+        cache.text("large", () -> "too large");
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.metrics.jetty9.websockets;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.annotation.Metered;
+import com.codahale.metrics.annotation.Timed;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class InstrumentationTest {
+    @Metered
+    @Timed
+    public static class AnnotatedEndpoint {
+    }
+
+    private final MetricRegistry metrics = new MetricRegistry();
+
+    @Test
+    public void testUnannotatedEndpointIsNotInstrumented() {
+        assertSame(Instrumentation.OFF, new EventDriverMetrics(Object.class, metrics).getInstrumentation());
+    }
+
+    @Test
+    public void testSessionClosesWithTheLevelItOpenedWith() {
+        EventDriverMetrics edm = new EventDriverMetrics(AnnotatedEndpoint.class, metrics);
+        Counter open = metrics.counter(MetricRegistry.name(AnnotatedEndpoint.class, EventDriverMetrics.OPEN_CONNECTIONS));
+        Instrumentation.Opened opened = edm.getInstrumentation().onOpen();
+        assertEquals(1, open.getCount());
+
+        edm.setLevel(InstrumentationLevel.OFF);
+        edm.getInstrumentation().onMessage();
+        assertEquals(0, metrics.meter(MetricRegistry.name(AnnotatedEndpoint.class, "OnMessage")).getCount());
+        opened.close();
+        assertEquals(0, open.getCount());
+        assertEquals(1, metrics.timer(MetricRegistry.name(AnnotatedEndpoint.class)).getCount());
+    }
+
+    @Test
+    public void testCountsLevelSkipsTiming() {
+        EventDriverMetrics edm = new EventDriverMetrics(AnnotatedEndpoint.class, metrics);
+        edm.setLevel(InstrumentationLevel.COUNTS);
+        edm.getInstrumentation().onOpen().close();
+        assertEquals(0, metrics.timer(MetricRegistry.name(AnnotatedEndpoint.class)).getCount());
+    }
+}
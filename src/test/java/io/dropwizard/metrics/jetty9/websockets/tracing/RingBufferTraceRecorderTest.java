@@ -0,0 +1,73 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.metrics.jetty9.websockets.tracing;
+
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class RingBufferTraceRecorderTest {
+
+    @Test
+    public void testKeepsNewestTraces() {
+        RingBufferTraceRecorder recorder = new RingBufferTraceRecorder(3);
+        SamplingMessageTracer tracer = new SamplingMessageTracer(1, recorder);
+        for (int i = 0; i < 5; i++) {
+            tracer.finish(tracer.start(TraceContext.Kind.TEXT_IN, getClass(), "s", i), null);
+        }
+        List<TraceContext> traces = recorder.snapshot();
+        assertEquals(3, traces.size());
+        assertEquals(4, traces.get(0).getSize());
+        assertEquals(2, traces.get(2).getSize());
+    }
+
+    @Test
+    public void testScopeExposesCurrentContext() {
+        RingBufferTraceRecorder recorder = new RingBufferTraceRecorder(10);
+        SamplingMessageTracer tracer = new SamplingMessageTracer(1, recorder);
+        try (TraceScope scope = tracer.scope(TraceContext.Kind.TEXT_IN, getClass(), "s", 5)) {
+            assertNotNull(TraceContext.current());
+            TraceContext.current().tag("conversation", "c1");
+        }
+        assertNull(TraceContext.current());
+        assertEquals("c1", recorder.snapshot().get(0).getTags().get("conversation"));
+        assertTrue(recorder.snapshot().get(0).getDurationNanos() >= 0);
+    }
+
+    @Test
+    public void testScopeRecordsFailure() {
+        RingBufferTraceRecorder recorder = new RingBufferTraceRecorder(10);
+        SamplingMessageTracer tracer = new SamplingMessageTracer(1, recorder);
+        try (TraceScope scope = tracer.scope(TraceContext.Kind.TEXT_IN, getClass(), "s", 5)) {
+            scope.fail(new IllegalStateException("handler failed"));
+        }
+        assertTrue(recorder.snapshot().get(0).getError().contains("handler failed"));
+    }
+
+    @Test
+    public void testZeroRateIsDisabled() {
+        SamplingMessageTracer tracer = new SamplingMessageTracer(0, new RingBufferTraceRecorder(1));
+        assertFalse(tracer.isEnabled());
+        assertNull(tracer.start(TraceContext.Kind.TEXT_IN, getClass(), "s", 1));
+    }
+}
@@ -25,10 +25,20 @@ package io.dropwizard.websockets;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.io.Resources;
+import io.dropwizard.metrics.jetty9.websockets.SessionFootprint;
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import static java.util.concurrent.TimeUnit.SECONDS;
+import java.util.stream.Collectors;
+import javax.websocket.ClientEndpointConfig;
+import javax.websocket.CloseReason;
 import javax.websocket.Session;
 import junit.framework.Assert;
 import org.apache.http.client.config.RequestConfig;
@@ -108,6 +118,94 @@ public class DropWizardWebsocketsTest {
         testWsMetrics(MyApp.EchoServer.class, "extends-ws");
     }
 
+    @Test
+    public void testRetainedBytesOfOpenSession() throws Exception {
+        String gauge = MyApp.StripedRoomServer.class.getName() + ".retainedBytes";
+        try (Session ws = connectStriped("room-4", null)) {
+            ObjectNode json = om.readValue(client.execute(new HttpGet(METRICS_URL), BASIC_RESPONSE_HANDLER), ObjectNode.class);
+            // The open session retains at least its fixed overhead
+            Assert.assertTrue(json.path("gauges").path(gauge).path("value").asLong() >= SessionFootprint.SESSION_OVERHEAD_BYTES);
+        }
+    }
+
+    @Test
+    public void testSubprotocolWebsocket() throws Exception {
+        try (Session ws = new SessionBuilder(wsClient)
+                .clientEndpointConfig(ClientEndpointConfig.Builder.create()
+                        .preferredSubprotocols(Collections.singletonList("echo"))
+                        .build())
+                .uri(new URI(String.format("ws://%s:%d/%s", LOCALHOST, PORT, "subprotocol-ws")))
+                .connect()) {
+            Assert.assertEquals("echo", ws.getNegotiatedSubprotocol());
+            ObjectNode json = om.readValue(client.execute(new HttpGet(METRICS_URL), BASIC_RESPONSE_HANDLER), ObjectNode.class);
+            // The session is accounted to the handler of its subprotocol
+            Assert.assertEquals(1,
+                    json.path("counters").path(MyApp.EchoServer.class.getName() + ".echo.openConnections").path("count").asInt());
+        }
+    }
+
+    @Test
+    public void testStripedDispatchKeepsOrderPerKey() throws Exception {
+        try (Session a = connectStriped("room-1", null); Session b = connectStriped("room-1", null)) {
+            for (int i = 0; i < 50; i++) {
+                a.getBasicRemote().sendText("a" + i);
+                b.getBasicRemote().sendText("b" + i);
+            }
+            List<String> events = awaitStripedEvents("room-1", 100);
+            for (String prefix : new String[]{"a", "b"}) {
+                List<String> messages = events.stream().filter(e -> e.startsWith(prefix)).map(e -> e.substring(0, e.indexOf('@'))).collect(Collectors.toList());
+                for (int i = 0; i < 50; i++)
+                    Assert.assertEquals(prefix + i, messages.get(i));
+            }
+            // both sessions of the room were handled on the same lane
+            Set<String> threads = events.stream().map(e -> e.substring(e.indexOf('@') + 1)).collect(Collectors.toSet());
+            Assert.assertEquals(1, threads.size());
+            Assert.assertTrue(threads.iterator().next().startsWith("websocket-lane-"));
+        }
+    }
+
+    @Test
+    public void testStripedDispatchClosesAfterQueuedMessages() throws Exception {
+        Session ws = connectStriped("room-2", null);
+        for (int i = 0; i < 50; i++)
+            ws.getBasicRemote().sendText("m" + i);
+        ws.close();
+        List<String> events = awaitStripedEvents("room-2", 51);
+        Assert.assertEquals(51, events.size());
+        Assert.assertTrue(events.get(50).startsWith("closed@"));
+    }
+
+    @Test
+    public void testStripedDispatchClosesOversizeMessage() throws Exception {
+        CompletableFuture<CloseReason> closed = new CompletableFuture<>();
+        Session ws = connectStriped("room-3", closed);
+        char[] big = new char[2048];
+        Arrays.fill(big, 'x');
+        ws.getBasicRemote().sendText(new String(big));
+        Assert.assertEquals(CloseReason.CloseCodes.TOO_BIG, closed.get(10, SECONDS).getCloseCode());
+    }
+
+    private Session connectStriped(String room, CompletableFuture<CloseReason> closed) throws Exception {
+        SessionBuilder builder = new SessionBuilder(wsClient)
+                .uri(new URI(String.format("ws://%s:%d/striped-ws/%s", LOCALHOST, PORT, room)));
+        if (closed != null)
+            builder = builder.onClose((session, reason) -> closed.complete(reason));
+        return builder.connect();
+    }
+
+    private static List<String> awaitStripedEvents(String room, int count) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            List<String> events = MyApp.StripedRoomServer.EVENTS.get(room);
+            if (events != null && events.size() >= count) {
+                synchronized (events) {
+                    return new ArrayList<>(events);
+                }
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("timed out waiting for " + count + " events in " + room);
+    }
+
     private void testWsMetrics(final Class<?> klass, final String path) throws Exception {
         try (Session ws = new SessionBuilder(wsClient)
                 .uri(new URI(String.format("ws://%s:%d/%s", LOCALHOST, PORT, path)))
@@ -0,0 +1,96 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import static org.junit.Assert.*;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EndpointScannerTest {
+    @Rule
+    public final TemporaryFolder temp = new TemporaryFolder();
+
+    private final EndpointScanner scanner = new EndpointScanner(getClass().getClassLoader());
+
+    @Test
+    public void testFindsAnnotatedEndpointsInDirectories() {
+        List<Class<?>> endpoints = scanner.scan("io.dropwizard.websockets");
+        assertTrue(endpoints.contains(MyApp.AnnotatedEchoServer.class));
+        assertFalse(endpoints.contains(MyApp.EchoServer.class));
+    }
+
+    @Test
+    public void testScansJars() {
+        assertTrue(scanner.scan("org.junit").isEmpty());
+    }
+
+    @Test
+    public void testFindsAnnotatedEndpointsInJarsWithoutInitializingThem() throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assume.assumeNotNull(compiler);
+        Path sources = temp.newFolder("src").toPath();
+        Path classes = temp.newFolder("classes").toPath();
+        Path source = Files.createDirectories(sources.resolve("jarscan")).resolve("JarEndpoint.java");
+        Files.write(source, Arrays.asList(
+                "package jarscan;",
+                "@javax.websocket.server.ServerEndpoint(\"/jar\")",
+                "public class JarEndpoint {",
+                "    static { System.setProperty(\"jarscan.initialized\", \"true\"); }",
+                "}"), StandardCharsets.UTF_8);
+        assertEquals(0, compiler.run(null, null, null, "-classpath", System.getProperty("java.class.path"),
+                "-d", classes.toString(), source.toString()));
+        File jar = temp.newFile("endpoints.jar");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("jarscan/JarEndpoint.class"));
+            out.write(Files.readAllBytes(classes.resolve("jarscan").resolve("JarEndpoint.class")));
+            out.closeEntry();
+        }
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{jar.toURI().toURL()}, getClass().getClassLoader())) {
+            List<Class<?>> endpoints = new EndpointScanner(loader).scan("jarscan");
+            assertEquals(1, endpoints.size());
+            assertEquals("jarscan.JarEndpoint", endpoints.get(0).getName());
+            assertNull(System.getProperty("jarscan.initialized"));
+        }
+    }
+
+    @Test
+    public void testUnknownPackageIsEmpty() {
+        assertTrue(scanner.scan("io.dropwizard.websockets.nothing").isEmpty());
+    }
+}
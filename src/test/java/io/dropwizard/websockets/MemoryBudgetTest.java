@@ -0,0 +1,143 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.jetty.MutableServletContextHandler;
+import io.dropwizard.metrics.jetty9.websockets.EndpointRegistry;
+import io.dropwizard.metrics.jetty9.websockets.InstWebSocketServerContainerInitializer;
+import io.dropwizard.metrics.jetty9.websockets.SessionFootprint;
+import io.dropwizard.metrics.jetty9.websockets.tracing.MessageTracer;
+import java.net.URI;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import javax.servlet.DispatcherType;
+import javax.websocket.ClientEndpointConfig;
+import javax.websocket.CloseReason;
+import javax.websocket.DeploymentException;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.OnMessage;
+import javax.websocket.Session;
+import javax.websocket.server.ServerEndpoint;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.glassfish.tyrus.client.ClientManager;
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class MemoryBudgetTest {
+    private final MetricRegistry metrics = new MetricRegistry();
+    private final EndpointRegistry endpoints = new EndpointRegistry(metrics, MessageTracer.DISABLED, true);
+    private final ClientManager client = ClientManager.createClient();
+    private Server server;
+    private URI uri;
+
+    @ServerEndpoint("/idle")
+    public static class IdleEndpoint {
+        @OnMessage
+        public void onMessage(String message) {
+        }
+    }
+
+    private static class ClosingClient extends Endpoint {
+        final CompletableFuture<CloseReason> closed = new CompletableFuture<>();
+
+        @Override
+        public void onOpen(Session session, EndpointConfig config) {
+        }
+
+        @Override
+        public void onClose(Session session, CloseReason closeReason) {
+            closed.complete(closeReason);
+        }
+    }
+
+    private void start(MemoryBudget budget) throws Exception {
+        budget.bind(metrics);
+        server = new Server(0);
+        MutableServletContextHandler context = new MutableServletContextHandler();
+        context.setContextPath("/");
+        server.setHandler(context);
+        context.addFilter(new FilterHolder(new MemoryBudgetFilter(budget, endpoints::getSessions)), "/*", EnumSet.of(DispatcherType.REQUEST));
+        InstWebSocketServerContainerInitializer.configureContext(context, endpoints).addEndpoint(IdleEndpoint.class);
+        server.start();
+        uri = URI.create("ws://localhost:" + ((ServerConnector) server.getConnectors()[0]).getLocalPort() + "/idle");
+    }
+
+    @After
+    public void stop() throws Exception {
+        client.shutdown();
+        if (server != null)
+            server.stop();
+    }
+
+    @Test
+    public void testRefusesUpgradeOverBudget() throws Exception {
+        // the first session fits, its footprint exceeds the budget for a second one
+        start(new MemoryBudget(SessionFootprint.SESSION_OVERHEAD_BYTES));
+        client.connectToServer(new ClosingClient(), ClientEndpointConfig.Builder.create().build(), uri);
+        try {
+            client.connectToServer(new ClosingClient(), ClientEndpointConfig.Builder.create().build(), uri);
+            fail("upgrade should be refused");
+        } catch (DeploymentException expected) {
+        }
+        assertEquals(1, endpoints.getSessions().getSessionCount());
+        assertEquals(1, metrics.meter("websockets.budget.refused").getCount());
+    }
+
+    @Test
+    public void testShedsIdleSessions() throws Exception {
+        MemoryBudget budget = new MemoryBudget(SessionFootprint.SESSION_OVERHEAD_BYTES, true, Duration.ofMillis(1));
+        start(budget);
+        ClosingClient idle = new ClosingClient();
+        client.connectToServer(idle, ClientEndpointConfig.Builder.create().build(), uri);
+        Thread.sleep(10);
+        // what the bundle's scheduled task does
+        budget.shedIdle(endpoints.getSessions());
+        assertEquals(CloseReason.CloseCodes.TRY_AGAIN_LATER, idle.closed.get(10, SECONDS).getCloseCode());
+        assertEquals(1, metrics.meter("websockets.budget.shed").getCount());
+    }
+
+    @Test
+    public void testKeepsSessionsWithinBudget() throws Exception {
+        MemoryBudget budget = new MemoryBudget(2 * SessionFootprint.SESSION_OVERHEAD_BYTES + (1 << 20), true, Duration.ofMillis(1));
+        start(budget);
+        ClosingClient idle = new ClosingClient();
+        client.connectToServer(idle, ClientEndpointConfig.Builder.create().build(), uri);
+        Thread.sleep(10);
+        budget.shedIdle(endpoints.getSessions());
+        assertFalse(idle.closed.isDone());
+        assertEquals(0, metrics.meter("websockets.budget.shed").getCount());
+    }
+
+    @Test
+    public void testAdmitsBeforeBind() {
+        MemoryBudget budget = new MemoryBudget(1);
+        assertFalse(budget.admit(endpoints.getSessions()));
+    }
+}
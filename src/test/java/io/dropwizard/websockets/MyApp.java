@@ -30,11 +30,13 @@ import io.dropwizard.Application;
 import io.dropwizard.Configuration;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
+import io.dropwizard.websockets.striped.StripedDispatch;
 import org.eclipse.jetty.util.component.AbstractLifeCycle;
 import org.eclipse.jetty.util.component.LifeCycle;
 
 import javax.servlet.ServletException;
 import javax.websocket.*;
+import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpoint;
 import javax.websocket.server.ServerEndpointConfig;
 import javax.ws.rs.GET;
@@ -45,6 +47,11 @@ import javax.ws.rs.core.MediaType;
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 
 public class MyApp extends Application<Configuration> {
@@ -57,7 +64,9 @@ public class MyApp extends Application<Configuration> {
     @Override
     public void initialize(Bootstrap<Configuration> bootstrap) {
         websocketBundle = new WebsocketBundle(AnnotatedEchoServer.class);
+        websocketBundle.enableMemoryAccounting();
         bootstrap.addBundle(websocketBundle);
+        websocketBundle.enableStripedDispatch(2);
     }
 
     private WebsocketBundle websocketBundle;
@@ -85,6 +94,12 @@ public class MyApp extends Application<Configuration> {
         // Then you can get it from the Session object
         // - obj = session.getUserProperties().get("objectName");            
         websocketBundle.addEndpoint(config);
+
+        // Several handlers can share a path, selected by the negotiated subprotocol
+        websocketBundle.addEndpoint("/subprotocol-ws", Collections.<String, Class<? extends Endpoint>>singletonMap("echo", EchoServer.class));
+
+        // Sessions of one room are processed in order on one lane
+        websocketBundle.addEndpoint(StripedRoomServer.class);
     }
 
     @Metered
@@ -107,6 +122,28 @@ public class MyApp extends Application<Configuration> {
         }
     }
 
+    @ServerEndpoint("/striped-ws/{room}")
+    @StripedDispatch(pathParam = "room")
+    public static class StripedRoomServer {
+        // per room, the events in the order they were processed and the threads that processed them
+        static final ConcurrentMap<String, List<String>> EVENTS = new ConcurrentHashMap<>();
+
+        @OnMessage(maxMessageSize = 1024)
+        public void onMessage(@PathParam("room") String room, String message) {
+            record(room, message);
+        }
+
+        @OnClose
+        public void onClose(@PathParam("room") String room) {
+            record(room, "closed");
+        }
+
+        private static void record(String room, String event) {
+            EVENTS.computeIfAbsent(room, r -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(event + "@" + Thread.currentThread().getName());
+        }
+    }
+
     @Metered
     @Timed
     public static class EchoServer extends Endpoint implements MessageHandler.Whole<String> {
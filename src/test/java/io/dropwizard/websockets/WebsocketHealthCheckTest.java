@@ -0,0 +1,55 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.health.HealthCheck;
+import io.dropwizard.metrics.jetty9.websockets.SessionRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class WebsocketHealthCheckTest {
+    private final SessionRegistry sessions = new SessionRegistry(new MetricRegistry(), true);
+    private final AtomicInteger queueDepth = new AtomicInteger();
+
+    @Test
+    public void testHealthyBelowThresholds() {
+        HealthCheck.Result result = new WebsocketHealthCheck(() -> sessions, queueDepth::get, 10, 10, 1024).execute();
+        assertTrue(result.isHealthy());
+        assertEquals(0L, result.getDetails().get("sendBacklogBytes"));
+    }
+
+    @Test
+    public void testUnhealthyWhenDispatchQueueIsDeep() {
+        queueDepth.set(11);
+        HealthCheck.Result result = new WebsocketHealthCheck(() -> sessions, queueDepth::get, 10, 10, 1024).execute();
+        assertFalse(result.isHealthy());
+        assertTrue(result.getMessage().contains("11 queued dispatches"));
+    }
+
+    @Test
+    public void testHealthyBeforeStart() {
+        assertTrue(new WebsocketHealthCheck(() -> null, queueDepth::get, 0, 0, 0).execute().isHealthy());
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.annotation.Metered;
+import com.google.common.collect.ImmutableMultimap;
+import io.dropwizard.metrics.jetty9.websockets.EndpointRegistry;
+import io.dropwizard.metrics.jetty9.websockets.EventDriverMetrics;
+import io.dropwizard.metrics.jetty9.websockets.InstrumentationLevel;
+import io.dropwizard.metrics.jetty9.websockets.tracing.MessageTracer;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class WebsocketInstrumentationTaskTest {
+    @Metered
+    public static class ChatHandler {
+    }
+
+    private final EndpointRegistry registry = new EndpointRegistry(new MetricRegistry(), MessageTracer.DISABLED);
+    private final WebsocketInstrumentationTask task = new WebsocketInstrumentationTask(() -> registry);
+
+    private String execute(ImmutableMultimap<String, String> parameters) throws Exception {
+        StringWriter output = new StringWriter();
+        task.execute(parameters, new PrintWriter(output));
+        return output.toString();
+    }
+
+    @Test
+    public void testReportsValidLevels() throws Exception {
+        String output = execute(ImmutableMultimap.of("level", "verbose"));
+        assertTrue(output, output.contains("unknown level verbose, expected one of [OFF, COUNTS, FULL]"));
+    }
+
+    @Test
+    public void testSwitchesAndListsSubprotocolHandlers() throws Exception {
+        EventDriverMetrics chat = registry.getSubprotocolMetrics(ChatHandler.class, "chat");
+        String output = execute(ImmutableMultimap.of("endpoint", ChatHandler.class.getName(), "level", "counts"));
+        assertEquals(InstrumentationLevel.COUNTS, chat.getLevel());
+        assertTrue(output, output.contains(ChatHandler.class.getName() + " (chat) COUNTS"));
+    }
+}
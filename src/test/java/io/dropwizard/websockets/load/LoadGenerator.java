@@ -0,0 +1,287 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets.load;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.UniformReservoir;
+import com.google.common.io.Resources;
+import io.dropwizard.websockets.GeneralUtils;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import javax.websocket.ClientEndpointConfig;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler;
+import javax.websocket.Session;
+import org.glassfish.tyrus.client.ClientManager;
+import org.glassfish.tyrus.client.ClientProperties;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * In-process load generator and soak-test harness.
+ * <p>
+ * Boots {@link LoadTestApp} (unless {@code load.embedded=false}), opens {@code load.connections}
+ * loopback websocket connections and drives them at a fixed aggregate message rate. Every message
+ * carries its scheduled send time, so the reported end-to-end latency includes queueing delay on the
+ * sender side as well. Run it with {@code mvn -Pload-test test-compile exec:java} and tune it with
+ * system properties:
+ * <ul>
+ * <li>{@code load.connections} - number of concurrent sessions (default 1000)</li>
+ * <li>{@code load.rate} - aggregate messages per second (default 10000)</li>
+ * <li>{@code load.size} - payload bytes per message (default 128)</li>
+ * <li>{@code load.binaryRatio} - fraction of binary messages, 0..1 (default 0)</li>
+ * <li>{@code load.fanOut} - copies the server sends per inbound message (default 1)</li>
+ * <li>{@code load.warmupSeconds}, {@code load.durationSeconds}, {@code load.reportSeconds}</li>
+ * <li>{@code load.senderThreads}, {@code load.connectThreads}</li>
+ * <li>{@code load.embedded}, {@code load.host}, {@code load.port}, {@code load.path}</li>
+ * </ul>
+ * Client and server share the JVM, so heap per session covers both ends of a connection.
+ * Thousands of connections usually need a raised {@code ulimit -n}.
+ */
+public class LoadGenerator {
+    private static final char SEPARATOR = '|';
+
+    private final int connections = Integer.getInteger("load.connections", 1000);
+    private final int rate = Integer.getInteger("load.rate", 10000);
+    private final int size = Integer.getInteger("load.size", 128);
+    private final double binaryRatio = Double.parseDouble(System.getProperty("load.binaryRatio", "0"));
+    private final int fanOut = Integer.getInteger("load.fanOut", 1);
+    private final int warmupSeconds = Integer.getInteger("load.warmupSeconds", 10);
+    private final int durationSeconds = Integer.getInteger("load.durationSeconds", 60);
+    private final int reportSeconds = Integer.getInteger("load.reportSeconds", 5);
+    private final int senderThreads = Integer.getInteger("load.senderThreads", 4);
+    private final int connectThreads = Integer.getInteger("load.connectThreads", 16);
+    private final boolean embedded = Boolean.parseBoolean(System.getProperty("load.embedded", "true"));
+    private final String host = System.getProperty("load.host", "127.0.0.1");
+    private final int port = Integer.getInteger("load.port", 48090);
+    private final String path = System.getProperty("load.path", LoadTestApp.PATH);
+
+    private final String textPadding;
+    private final byte[] binaryPadding;
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final Histogram totalLatency = newHistogram();
+    private final AtomicReference<Histogram> intervalLatency = new AtomicReference<>(newHistogram());
+    private volatile boolean recording = false;
+
+    public LoadGenerator() {
+        char[] padding = new char[size];
+        Arrays.fill(padding, 'x');
+        this.textPadding = new String(padding);
+        this.binaryPadding = textPadding.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadGenerator().run();
+        System.exit(0);
+    }
+
+    public void run() throws Exception {
+        if (embedded)
+            startServer();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+
+        List<Session> sessions = connect();
+        System.gc();
+        long heapAfter = memory.getHeapMemoryUsage().getUsed();
+        System.out.printf("connected %d sessions, ~%d heap bytes per session%n",
+                sessions.size(), (heapAfter - heapBefore) / Math.max(1, sessions.size()));
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        ExecutorService senders = Executors.newFixedThreadPool(senderThreads);
+        long start = System.nanoTime();
+        long warmupEnd = start + SECONDS.toNanos(warmupSeconds);
+        long end = warmupEnd + SECONDS.toNanos(durationSeconds);
+        List<Future<?>> running = new ArrayList<>();
+        for (int t = 0; t < senderThreads; t++) {
+            List<Session> partition = partition(sessions, t);
+            running.add(senders.submit(() -> drive(partition, (double) rate / senderThreads, end)));
+        }
+
+        LongAdder gcBaseline = new LongAdder();
+        reporter.schedule(() -> {
+            recording = true;
+            gcBaseline.add(gcTimeMillis());
+            System.out.println("warmup done, recording");
+        }, warmupSeconds, SECONDS);
+        reporter.scheduleAtFixedRate(new IntervalReport(), reportSeconds, reportSeconds, SECONDS);
+
+        for (Future<?> f : running)
+            f.get();
+        recording = false;
+        reporter.shutdownNow();
+        senders.shutdownNow();
+
+        Snapshot s = totalLatency.getSnapshot();
+        System.out.printf("%nsummary: %d s at %d msg/s, %d connections, %d bytes, binary ratio %.2f, fan-out %d%n",
+                durationSeconds, rate, sessions.size(), size, binaryRatio, fanOut);
+        System.out.printf("  received %d messages, latency ms p50=%.3f p99=%.3f p999=%.3f max=%.3f%n",
+                totalLatency.getCount(), millis(s.getMedian()), millis(s.get99thPercentile()),
+                millis(s.get999thPercentile()), millis(s.getMax()));
+        System.out.printf("  gc pauses %d ms, heap used %d MB%n",
+                gcTimeMillis() - gcBaseline.sum(), memory.getHeapMemoryUsage().getUsed() >> 20);
+
+        for (Session session : sessions)
+            session.close();
+    }
+
+    private void startServer() throws InterruptedException {
+        CountDownLatch serverStarted = new CountDownLatch(1);
+        Thread serverThread = new Thread(GeneralUtils.rethrow(() -> new LoadTestApp(serverStarted, fanOut)
+                .run(new String[]{"server", Resources.getResource("load.yml").getPath()})));
+        serverThread.setDaemon(true);
+        serverThread.start();
+        if (!serverStarted.await(30, SECONDS))
+            throw new IllegalStateException("load test server did not start");
+    }
+
+    private List<Session> connect() throws Exception {
+        ClientManager client = ClientManager.createClient();
+        client.getProperties().put(ClientProperties.SHARED_CONTAINER, true);
+        client.getProperties().put(ClientProperties.HANDSHAKE_TIMEOUT, 30000);
+        URI uri = new URI(String.format("ws://%s:%d%s", host, port, path));
+        ClientEndpointConfig config = ClientEndpointConfig.Builder.create().build();
+
+        ExecutorService pool = Executors.newFixedThreadPool(connectThreads);
+        List<Future<Session>> pending = new ArrayList<>();
+        for (int i = 0; i < connections; i++)
+            pending.add(pool.submit(() -> client.connectToServer(new LatencyRecorder(), config, uri)));
+        List<Session> sessions = new ArrayList<>();
+        for (Future<Session> f : pending)
+            sessions.add(f.get());
+        pool.shutdown();
+        return Collections.unmodifiableList(sessions);
+    }
+
+    private List<Session> partition(List<Session> sessions, int index) {
+        List<Session> result = new ArrayList<>();
+        for (int i = index; i < sessions.size(); i += senderThreads)
+            result.add(sessions.get(i));
+        return result;
+    }
+
+    private void drive(List<Session> sessions, double ratePerThread, long endNanos) {
+        if (sessions.isEmpty())
+            return;
+        final long interval = (long) (SECONDS.toNanos(1) / ratePerThread);
+        long next = System.nanoTime();
+        int i = 0;
+        long now;
+        while ((now = System.nanoTime()) < endNanos) {
+            if (now < next) {
+                LockSupport.parkNanos(next - now);
+                continue;
+            }
+            Session session = sessions.get(i++ % sessions.size());
+            // stamp with the scheduled time so sender-side backlog shows up as latency
+            if (binaryRatio > 0 && ThreadLocalRandom.current().nextDouble() < binaryRatio) {
+                ByteBuffer buf = ByteBuffer.allocate(Long.BYTES + binaryPadding.length);
+                buf.putLong(next).put(binaryPadding).flip();
+                session.getAsyncRemote().sendBinary(buf);
+            } else {
+                session.getAsyncRemote().sendText(Long.toString(next) + SEPARATOR + textPadding);
+            }
+            sent.increment();
+            next += interval;
+        }
+    }
+
+    private void record(long sentNanos) {
+        received.increment();
+        if (recording) {
+            long latency = System.nanoTime() - sentNanos;
+            totalLatency.update(latency);
+            intervalLatency.get().update(latency);
+        }
+    }
+
+    private static long gcTimeMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            total += Math.max(0, gc.getCollectionTime());
+        return total;
+    }
+
+    private static double millis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static Histogram newHistogram() {
+        return new Histogram(new UniformReservoir(1 << 20));
+    }
+
+    private class LatencyRecorder extends Endpoint {
+        @Override
+        public void onOpen(Session session, EndpointConfig config) {
+            session.addMessageHandler(new MessageHandler.Whole<String>() {
+                @Override
+                public void onMessage(String message) {
+                    record(Long.parseLong(message.substring(0, message.indexOf(SEPARATOR))));
+                }
+            });
+            session.addMessageHandler(new MessageHandler.Whole<ByteBuffer>() {
+                @Override
+                public void onMessage(ByteBuffer message) {
+                    record(message.getLong(message.position()));
+                }
+            });
+        }
+    }
+
+    private class IntervalReport implements Runnable {
+        private long lastGc = gcTimeMillis();
+
+        @Override
+        public void run() {
+            long gc = gcTimeMillis();
+            Snapshot s = intervalLatency.getAndSet(newHistogram()).getSnapshot();
+            System.out.printf("sent %d/s received %d/s | latency ms p50=%.3f p99=%.3f p999=%.3f | gc %d ms | heap %d MB%n",
+                    sent.sumThenReset() / reportSeconds, received.sumThenReset() / reportSeconds,
+                    millis(s.getMedian()), millis(s.get99thPercentile()), millis(s.get999thPercentile()),
+                    gc - lastGc, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() >> 20);
+            lastGc = gc;
+        }
+    }
+}
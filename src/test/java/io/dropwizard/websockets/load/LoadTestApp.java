@@ -0,0 +1,126 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets.load;
+
+import com.codahale.metrics.annotation.Metered;
+import com.codahale.metrics.annotation.Timed;
+import io.dropwizard.Application;
+import io.dropwizard.Configuration;
+import io.dropwizard.setup.Bootstrap;
+import io.dropwizard.setup.Environment;
+import io.dropwizard.websockets.WebsocketBundle;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.websocket.CloseReason;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler;
+import javax.websocket.Session;
+import javax.websocket.server.ServerEndpointConfig;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.component.LifeCycle;
+
+/**
+ * A MyApp-style application used by {@link LoadGenerator}. It serves a single
+ * echo endpoint that optionally fans every message out to other sessions.
+ */
+public class LoadTestApp extends Application<Configuration> {
+    public static final String PATH = "/load-ws";
+    static final String FAN_OUT = "fanOut";
+
+    private final CountDownLatch cdl;
+    private final int fanOut;
+    private WebsocketBundle websocketBundle;
+
+    LoadTestApp(CountDownLatch cdl, int fanOut) {
+        this.cdl = cdl;
+        this.fanOut = fanOut;
+    }
+
+    @Override
+    public void initialize(Bootstrap<Configuration> bootstrap) {
+        websocketBundle = new WebsocketBundle();
+        bootstrap.addBundle(websocketBundle);
+    }
+
+    @Override
+    public void run(Configuration configuration, Environment environment) {
+        environment.lifecycle().addLifeCycleListener(new AbstractLifeCycle.AbstractLifeCycleListener() {
+
+            @Override
+            public void lifeCycleStarted(LifeCycle event) {
+                cdl.countDown();
+            }
+        });
+        final ServerEndpointConfig config = ServerEndpointConfig.Builder.create(LoadEchoServer.class, PATH).build();
+        config.getUserProperties().put(FAN_OUT, fanOut);
+        websocketBundle.addEndpoint(config);
+    }
+
+    @Metered
+    @Timed
+    public static class LoadEchoServer extends Endpoint {
+        private static final List<Session> SESSIONS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onOpen(Session session, EndpointConfig config) {
+            final int fanOut = (Integer) config.getUserProperties().get(FAN_OUT);
+            SESSIONS.add(session);
+            session.addMessageHandler(new MessageHandler.Whole<String>() {
+                @Override
+                public void onMessage(String message) {
+                    session.getAsyncRemote().sendText(message);
+                    for (int i = 1; i < fanOut; i++) {
+                        randomSession(session).getAsyncRemote().sendText(message);
+                    }
+                }
+            });
+            session.addMessageHandler(new MessageHandler.Whole<ByteBuffer>() {
+                @Override
+                public void onMessage(ByteBuffer message) {
+                    session.getAsyncRemote().sendBinary(message.duplicate());
+                    for (int i = 1; i < fanOut; i++) {
+                        randomSession(session).getAsyncRemote().sendBinary(message.duplicate());
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void onClose(Session session, CloseReason closeReason) {
+            SESSIONS.remove(session);
+        }
+
+        private static Session randomSession(Session fallback) {
+            try {
+                return SESSIONS.get(ThreadLocalRandom.current().nextInt(SESSIONS.size()));
+            } catch (IndexOutOfBoundsException | IllegalArgumentException ex) {
+                // a session closed concurrently
+                return fallback;
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets.multiplex;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class ChannelFramesTest {
+
+    @Test
+    public void testTextRoundTrip() {
+        String frame = ChannelFrames.text("chat", "hello:world");
+        assertEquals("chat", ChannelFrames.textChannel(frame));
+        assertEquals("hello:world", ChannelFrames.textPayload(frame));
+        assertNull(ChannelFrames.textChannel("no channel"));
+    }
+
+    @Test
+    public void testBinaryRoundTrip() {
+        ByteBuffer frame = ChannelFrames.binary("presence", ByteBuffer.wrap("payload".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("presence", ChannelFrames.binaryChannel(frame));
+        ByteBuffer payload = ChannelFrames.binaryPayload(frame);
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        assertEquals("payload", new String(bytes, StandardCharsets.UTF_8));
+        // reading does not consume the frame
+        assertEquals("presence", ChannelFrames.binaryChannel(frame));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsSeparatorInChannelId() {
+        new ChannelMultiplexer(1).channel("a:b", () -> null);
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets.multiplex;
+
+import com.codahale.metrics.MetricRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import javax.websocket.CloseReason;
+import javax.websocket.server.ServerEndpointConfig;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChannelMultiplexerTest {
+    private final MetricRegistry registry = new MetricRegistry();
+    private final List<String> received = new ArrayList<>();
+    private final List<Channel> opened = new ArrayList<>();
+    private final TestSession session = new TestSession();
+    private final MultiplexingEndpoint endpoint = new MultiplexingEndpoint();
+
+    @Before
+    public void open() {
+        ChannelMultiplexer multiplexer = new ChannelMultiplexer(4)
+                .channel("chat", () -> new ChannelHandler() {
+                    @Override
+                    public void onOpen(Channel channel) {
+                        opened.add(channel);
+                    }
+
+                    @Override
+                    public void onMessage(Channel channel, String message) {
+                        received.add(message);
+                    }
+                })
+                .channel("presence", () -> (channel, message) -> received.add("presence " + message))
+                .channel("failing", () -> (channel, message) -> {
+                    throw new IllegalStateException(message);
+                });
+        multiplexer.bind(registry);
+        ServerEndpointConfig config = ServerEndpointConfig.Builder.create(MultiplexingEndpoint.class, "/mux").build();
+        config.getUserProperties().put(MultiplexingEndpoint.MULTIPLEXER, multiplexer);
+        endpoint.onOpen(session.session, config);
+    }
+
+    @Test
+    public void testDispatchesToChannel() {
+        session.deliver(String.class, "chat:hello");
+        session.deliver(String.class, "presence:online");
+        session.deliver(String.class, "video:frame");
+        assertEquals(2, received.size());
+        assertEquals("hello", received.get(0));
+        assertEquals("presence online", received.get(1));
+        assertEquals(1, registry.meter("websockets.channels.chat.received").getCount());
+        assertEquals(1, registry.meter("websockets.channels.presence.received").getCount());
+        assertEquals(1, registry.meter("websockets.channels.unknown").getCount());
+        assertEquals(1, registry.counter("websockets.channels.chat.open").getCount());
+    }
+
+    @Test
+    public void testGrantsInitialAndConsumedCredit() {
+        assertTrue(session.sent.contains("$:chat:4"));
+        assertTrue(session.sent.contains("$:presence:4"));
+        session.sent.clear();
+        session.deliver(String.class, "chat:1");
+        assertTrue(session.sent.isEmpty());
+        session.deliver(String.class, "chat:2");
+        assertEquals("$:chat:2", session.sent.get(0));
+        assertEquals(4, opened.get(0).getInboundCredit());
+    }
+
+    @Test
+    public void testClosesPeerExceedingCredit() {
+        opened.get(0).setAutoCredit(false);
+        for (int i = 0; i < 4; i++)
+            session.deliver(String.class, "chat:" + i);
+        assertNull(session.closeReason);
+        session.deliver(String.class, "chat:flood");
+        assertEquals(CloseReason.CloseCodes.VIOLATED_POLICY, session.closeReason.getCloseCode());
+        assertEquals(4, received.size());
+        assertEquals(1, registry.meter("websockets.channels.chat.overflow").getCount());
+        assertEquals(4, registry.meter("websockets.channels.chat.received").getCount());
+    }
+
+    @Test
+    public void testFailingHandlerReturnsCredit() {
+        for (int i = 0; i < 8; i++) {
+            try {
+                session.deliver(String.class, "failing:" + i);
+                fail("handler should have thrown");
+            } catch (IllegalStateException expected) {
+            }
+        }
+        assertNull(session.closeReason);
+        assertEquals(0, registry.meter("websockets.channels.failing.overflow").getCount());
+    }
+
+    @Test
+    public void testManualCreditAllowsMoreMessages() {
+        Channel chat = opened.get(0);
+        chat.setAutoCredit(false);
+        for (int i = 0; i < 4; i++)
+            session.deliver(String.class, "chat:" + i);
+        chat.credit(4);
+        session.deliver(String.class, "chat:more");
+        assertNull(session.closeReason);
+        assertEquals(5, received.size());
+    }
+
+    @Test
+    public void testFullWindowRefusesSends() {
+        Channel chat = opened.get(0);
+        session.sent.clear();
+        for (int i = 0; i < 4; i++)
+            assertTrue(chat.send("m" + i));
+        assertFalse(chat.isWritable());
+        assertFalse(chat.send("refused"));
+        assertEquals(4, session.sent.size());
+        assertEquals("chat:m0", session.sent.get(0));
+        assertEquals(4, registry.meter("websockets.channels.chat.sent").getCount());
+        assertEquals(1, registry.meter("websockets.channels.chat.rejected").getCount());
+
+        session.completeSends();
+        assertEquals(0, chat.getPendingSends());
+        assertTrue(chat.send("accepted"));
+    }
+
+    @Test
+    public void testCloseClosesChannels() {
+        endpoint.onClose(session.session, null);
+        assertEquals(0, registry.counter("websockets.channels.chat.open").getCount());
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets.multiplex;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.websocket.CloseReason;
+import javax.websocket.MessageHandler;
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+
+/**
+ * A session that records what is sent and closed, and delivers messages to the registered handlers.
+ * Sends complete only when {@link #completeSends()} is called.
+ */
+class TestSession {
+    final List<Object> sent = new ArrayList<>();
+    final List<SendHandler> pendingSends = new ArrayList<>();
+    final Map<String, Object> userProperties = new HashMap<>();
+    private final List<MessageHandler> handlers = new ArrayList<>();
+    CloseReason closeReason;
+
+    final RemoteEndpoint.Async async = (RemoteEndpoint.Async) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{RemoteEndpoint.Async.class}, (proxy, method, args) -> {
+                if (method.getName().startsWith("send")) {
+                    sent.add(args[0]);
+                    if (args.length > 1 && args[1] instanceof SendHandler)
+                        pendingSends.add((SendHandler) args[1]);
+                }
+                return null;
+            });
+
+    final Session session = (Session) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{Session.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "addMessageHandler":
+                        handlers.add((MessageHandler) args[args.length - 1]);
+                        return null;
+                    case "getAsyncRemote":
+                        return async;
+                    case "getUserProperties":
+                        return userProperties;
+                    case "close":
+                        closeReason = args != null ? (CloseReason) args[0] : new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, null);
+                        return null;
+                    case "isOpen":
+                        return closeReason == null;
+                    case "getId":
+                        return "test";
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    case "toString":
+                        return "TestSession";
+                    default:
+                        return null;
+                }
+            });
+
+    @SuppressWarnings("unchecked")
+    <T> void deliver(Class<T> type, T message) {
+        for (MessageHandler handler : handlers) {
+            for (Type iface : handler.getClass().getGenericInterfaces()) {
+                if (iface instanceof ParameterizedType && ((ParameterizedType) iface).getActualTypeArguments()[0] == type) {
+                    ((MessageHandler.Whole<T>) handler).onMessage(message);
+                    return;
+                }
+            }
+        }
+        throw new IllegalStateException("no handler for " + type);
+    }
+
+    void completeSends() {
+        List<SendHandler> completed = new ArrayList<>(pendingSends);
+        pendingSends.clear();
+        completed.forEach(handler -> handler.onResult(new SendResult()));
+    }
+}
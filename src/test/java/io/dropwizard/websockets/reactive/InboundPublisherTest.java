@@ -0,0 +1,131 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets.reactive;
+
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+public class InboundPublisherTest {
+    private final List<String> events = new ArrayList<>();
+    private final List<String> received = new ArrayList<>();
+    private InboundPublisher<String> publisher;
+    private Subscription subscription;
+    private boolean completed;
+
+    @Before
+    public void setUp() {
+        publisher = new InboundPublisher<>(new ReadControl() {
+            @Override
+            public void pause() {
+                events.add("pause");
+            }
+
+            @Override
+            public void resume() {
+                events.add("resume");
+            }
+        });
+        publisher.subscribe(new Subscriber<String>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription = s;
+            }
+
+            @Override
+            public void onNext(String message) {
+                received.add(message);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                fail(t.getMessage());
+            }
+
+            @Override
+            public void onComplete() {
+                completed = true;
+            }
+        });
+    }
+
+    @Test
+    public void testReadingFollowsDemand() {
+        assertTrue(publisher.isPaused());
+        subscription.request(2);
+        assertFalse(publisher.isPaused());
+        publisher.onNext("a");
+        publisher.onNext("b");
+        assertTrue(publisher.isPaused());
+        publisher.onNext("c");
+        assertEquals(2, received.size());
+        subscription.request(1);
+        assertEquals("c", received.get(2));
+        assertTrue(publisher.isPaused());
+        assertEquals(2, events.stream().filter("pause"::equals).count());
+    }
+
+    @Test
+    public void testCompletesAfterBufferedMessages() {
+        publisher.onNext("a");
+        publisher.onComplete();
+        assertFalse(completed);
+        subscription.request(1);
+        assertEquals("a", received.get(0));
+        assertTrue(completed);
+    }
+
+    @Test
+    public void testCancelResumesReading() {
+        publisher.onNext("a");
+        subscription.cancel();
+        assertFalse(publisher.isPaused());
+        assertEquals("resume", events.get(events.size() - 1));
+        subscription.request(1);
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    public void testKeepsReadingWithoutSubscriber() {
+        InboundPublisher<String> unsubscribed = new InboundPublisher<>(ReadControl.NONE);
+        unsubscribed.onNext("a");
+        assertTrue(unsubscribed.isPaused());
+        unsubscribed.connected();
+        assertFalse(unsubscribed.isPaused());
+        unsubscribed.onNext("b");
+        assertFalse(unsubscribed.isPaused());
+    }
+
+    @Test
+    public void testSubscribedBeforeConnectedKeepsBackpressure() {
+        publisher.connected();
+        publisher.onNext("a");
+        assertTrue(publisher.isPaused());
+        subscription.request(1);
+        assertEquals("a", received.get(0));
+    }
+}
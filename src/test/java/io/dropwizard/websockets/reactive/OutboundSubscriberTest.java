@@ -0,0 +1,80 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets.reactive;
+
+import java.lang.reflect.Proxy;
+import javax.websocket.CloseReason;
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.Session;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.reactivestreams.Subscription;
+
+public class OutboundSubscriberTest {
+    private CloseReason closeReason;
+    private boolean cancelled;
+    private long requested;
+
+    private final RemoteEndpoint.Async failingRemote = (RemoteEndpoint.Async) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{RemoteEndpoint.Async.class}, (proxy, method, args) -> {
+                throw new IllegalStateException("blocking message pending");
+            });
+
+    private final Session session = (Session) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{Session.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getAsyncRemote":
+                        return failingRemote;
+                    case "isOpen":
+                        return closeReason == null;
+                    case "close":
+                        closeReason = (CloseReason) args[0];
+                        return null;
+                    default:
+                        return null;
+                }
+            });
+
+    private final Subscription subscription = new Subscription() {
+        @Override
+        public void request(long n) {
+            requested += n;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    };
+
+    @Test
+    public void testFailedSendCancelsAndCloses() {
+        OutboundSubscriber subscriber = new OutboundSubscriber(session, 4);
+        subscriber.onSubscribe(subscription);
+        assertEquals(4, requested);
+
+        subscriber.onNext("hello");
+        assertTrue(cancelled);
+        assertEquals(CloseReason.CloseCodes.UNEXPECTED_CONDITION, closeReason.getCloseCode());
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets.reactive;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.jetty.MutableServletContextHandler;
+import io.dropwizard.metrics.jetty9.websockets.EndpointRegistry;
+import io.dropwizard.metrics.jetty9.websockets.InstWebSocketServerContainerInitializer;
+import io.dropwizard.metrics.jetty9.websockets.tracing.MessageTracer;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import javax.websocket.ClientEndpointConfig;
+import javax.websocket.CloseReason;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler;
+import javax.websocket.Session;
+import javax.websocket.server.ServerContainer;
+import javax.websocket.server.ServerEndpointConfig;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.glassfish.tyrus.client.ClientManager;
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+
+public class ReactiveEndpointTest {
+    private final MetricRegistry metrics = new MetricRegistry();
+    private final ClientManager client = ClientManager.createClient();
+    private Server server;
+    private int port;
+
+    public static class EchoServer extends ReactiveEndpoint {
+        @Override
+        protected Publisher<String> connect(Session session, EndpointConfig config, Publisher<String> inbound) {
+            return inbound;
+        }
+    }
+
+    public static class IgnoringServer extends ReactiveEndpoint {
+        static volatile CountDownLatch closed;
+
+        @Override
+        protected Publisher<String> connect(Session session, EndpointConfig config, Publisher<String> inbound) {
+            return s -> s.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+        }
+
+        @Override
+        public void onClose(Session session, CloseReason closeReason) {
+            super.onClose(session, closeReason);
+            closed.countDown();
+        }
+    }
+
+    private static class Client extends Endpoint {
+        final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        final CompletableFuture<CloseReason> closed = new CompletableFuture<>();
+
+        @Override
+        public void onOpen(Session session, EndpointConfig config) {
+            session.addMessageHandler(new MessageHandler.Whole<String>() {
+                @Override
+                public void onMessage(String message) {
+                    received.add(message);
+                }
+            });
+        }
+
+        @Override
+        public void onClose(Session session, CloseReason closeReason) {
+            closed.complete(closeReason);
+        }
+    }
+
+    @Before
+    public void start() throws Exception {
+        server = new Server(0);
+        MutableServletContextHandler context = new MutableServletContextHandler();
+        context.setContextPath("/");
+        server.setHandler(context);
+        ServerContainer container = InstWebSocketServerContainerInitializer.configureContext(context, new EndpointRegistry(metrics, MessageTracer.DISABLED));
+        container.addEndpoint(ServerEndpointConfig.Builder.create(EchoServer.class, "/echo").build());
+        container.addEndpoint(ServerEndpointConfig.Builder.create(IgnoringServer.class, "/ignore").build());
+        server.start();
+        port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+    }
+
+    @After
+    public void stop() throws Exception {
+        client.shutdown();
+        server.stop();
+    }
+
+    private Session connect(Client endpoint, String path) throws Exception {
+        return client.connectToServer(endpoint, ClientEndpointConfig.Builder.create().build(), URI.create("ws://localhost:" + port + path));
+    }
+
+    @Test
+    public void testEchoesInOrderThroughReactiveDriver() throws Exception {
+        Client echo = new Client();
+        Session session = connect(echo, "/echo");
+        for (int i = 0; i < 20; i++)
+            session.getBasicRemote().sendText("m" + i);
+        for (int i = 0; i < 20; i++)
+            assertEquals("m" + i, echo.received.poll(5, SECONDS));
+        // registered by the reactive event driver
+        assertTrue(metrics.getMeters().containsKey(MetricRegistry.name(EchoServer.class, "readPauses")));
+        session.close();
+    }
+
+    @Test
+    public void testRejectsBinaryMessages() throws Exception {
+        Client echo = new Client();
+        Session session = connect(echo, "/echo");
+        session.getBasicRemote().sendBinary(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        assertEquals(CloseReason.CloseCodes.CANNOT_ACCEPT, echo.closed.get(5, SECONDS).getCloseCode());
+    }
+
+    @Test
+    public void testKeepsReadingWithoutInboundSubscriber() throws Exception {
+        IgnoringServer.closed = new CountDownLatch(1);
+        Session session = connect(new Client(), "/ignore");
+        for (int i = 0; i < 5; i++)
+            session.getBasicRemote().sendText("ignored " + i);
+        session.close();
+        // the server only sees the close frame if it kept reading
+        assertTrue(IgnoringServer.closed.await(5, SECONDS));
+    }
+}
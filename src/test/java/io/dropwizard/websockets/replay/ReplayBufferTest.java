@@ -0,0 +1,126 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets.replay;
+
+import com.codahale.metrics.MetricRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReplayBufferTest {
+    private final AtomicLong clock = new AtomicLong(1000);
+    private MetricRegistry metrics;
+    private ReplayBuffers buffers;
+
+    @Before
+    public void setUp() {
+        metrics = new MetricRegistry();
+        buffers = new ReplayBuffers(metrics, 3, 1024, Duration.ofSeconds(10), clock::get);
+    }
+
+    @Test
+    public void testResumeFromLastAcked() {
+        ReplayBuffer buffer = buffers.get("topic");
+        for (int i = 1; i <= 3; i++)
+            assertEquals(i, buffer.append(seq -> "msg" + seq));
+        Optional<List<ReplayBuffer.Entry>> missed = buffer.since(1);
+        assertTrue(missed.isPresent());
+        assertEquals(2, missed.get().size());
+        assertEquals("msg2", missed.get().get(0).getText());
+        assertEquals(1, metrics.meter("websockets.replay.hits").getCount());
+    }
+
+    @Test
+    public void testEvictedRangeIsAMiss() {
+        ReplayBuffer buffer = buffers.get("topic");
+        for (int i = 0; i < 5; i++)
+            buffer.append("x");
+        assertEquals(3, buffer.size());
+        assertFalse(buffer.since(1).isPresent());
+        assertTrue(buffer.since(2).isPresent());
+        assertEquals(1, metrics.meter("websockets.replay.misses").getCount());
+    }
+
+    @Test
+    public void testEvictsByAgeAndTracksBytes() {
+        ReplayBuffer buffer = buffers.get("session");
+        buffer.append("abcd");
+        assertEquals(4, buffers.getBytes());
+        clock.addAndGet(Duration.ofSeconds(11).toMillis());
+        buffer.append("ef");
+        assertEquals(1, buffer.size());
+        assertEquals(2, buffers.getBytes());
+        assertFalse(buffer.since(0).isPresent());
+    }
+
+    @Test
+    public void testRecreatedBufferContinuesSequence() {
+        ReplayBuffer buffer = buffers.get("client");
+        buffer.append("a");
+        buffer.append("b");
+        clock.addAndGet(Duration.ofSeconds(11).toMillis());
+        buffers.evictExpired();
+
+        ReplayBuffer recreated = buffers.get("client");
+        assertNotSame(buffer, recreated);
+        assertEquals(3, recreated.append("c"));
+        assertFalse(recreated.since(1).isPresent());
+        assertEquals(1, recreated.since(2).get().size());
+    }
+
+    @Test
+    public void testRemovedBufferRefusesAppends() {
+        ReplayBuffer stale = buffers.get("client");
+        stale.append("abcd");
+        buffers.remove("client");
+        assertEquals(0, buffers.getBytes());
+        try {
+            stale.append("efgh");
+            fail("append to a removed buffer");
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(0, stale.size());
+        assertEquals(0, buffers.getBytes());
+        assertEquals(0, metrics.getGauges().get("websockets.replay.buffers").getValue());
+    }
+
+    @Test
+    public void testAppendSweepsIdleBuffers() {
+        ReplayBuffer active = buffers.get("active");
+        buffers.get("idle");
+        clock.addAndGet(Duration.ofSeconds(11).toMillis());
+        active.append("x");
+        assertEquals(1, metrics.getGauges().get("websockets.replay.buffers").getValue());
+    }
+
+    @Test
+    public void testReplacementTakesOverGauges() {
+        ReplayBuffers replacement = new ReplayBuffers(metrics, 3, 1024, Duration.ofSeconds(10), clock::get);
+        replacement.get("topic").append("abc");
+        assertEquals(3L, metrics.getGauges().get("websockets.replay.bytes").getValue());
+    }
+}
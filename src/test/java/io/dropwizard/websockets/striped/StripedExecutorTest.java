@@ -0,0 +1,121 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets.striped;
+
+import com.codahale.metrics.MetricRegistry;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Test;
+
+public class StripedExecutorTest {
+    private final MetricRegistry metrics = new MetricRegistry();
+    private final StripedExecutor executor = new StripedExecutor(4, metrics);
+    private final List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+
+    @After
+    public void tearDown() throws InterruptedException {
+        executor.stop();
+        assertTrue("lane failures: " + failures, failures.isEmpty());
+    }
+
+    @Test
+    public void testSameKeyRunsInOrderOnOneLane() throws InterruptedException {
+        StripedExecutor.Lane lane = executor.lane("conversation-1");
+        assertSame(lane, executor.lane("conversation-1"));
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            int n = i;
+            lane.execute(() -> {
+                assertTrue(lane.isCurrent());
+                seen.add(n);
+                done.countDown();
+            }, failures::add);
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 1000; i++)
+            assertEquals(i, (int) seen.get(i));
+        assertFalse(lane.isCurrent());
+    }
+
+    @Test
+    public void testFailuresAreReported() throws InterruptedException {
+        CountDownLatch failed = new CountDownLatch(1);
+        executor.lane(1).execute(() -> {
+            throw new IllegalStateException();
+        }, t -> failed.countDown());
+        assertTrue(failed.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testImbalance() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        StripedExecutor.Lane lane = executor.lane(1);
+        lane.execute(release::await, failures::add);
+        for (int i = 0; i < 3; i++)
+            lane.execute(() -> {}, failures::add);
+        assertEquals(3, metrics.getGauges().get("websockets.lanes.depth").getValue());
+        assertEquals(4.0, (Double) metrics.getGauges().get("websockets.lanes.imbalance").getValue(), 0.001);
+        release.countDown();
+    }
+
+    @Test
+    public void testMandatoryTaskRunsAfterStop() throws InterruptedException {
+        executor.stop();
+        AtomicBoolean ran = new AtomicBoolean();
+        StripedExecutor.Lane lane = executor.lane(1);
+        try {
+            lane.execute(() -> fail("lane accepted work after stop"), failures::add);
+            fail("lane accepted work after stop");
+        } catch (RejectedExecutionException expected) {
+        }
+        lane.executeMandatory(() -> ran.set(true), failures::add);
+        assertTrue(ran.get());
+    }
+
+    @Test
+    public void testRejectsNonPositiveMaxDepth() {
+        try {
+            new StripedExecutor(1, 0, new MetricRegistry());
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testCopyLeavesTheFrameUntouched() {
+        ByteBuffer frame = ByteBuffer.wrap(new byte[]{1, 2, 3});
+        ByteBuffer copy = StripedExecutor.copy(frame);
+        frame.put(0, (byte) 9);
+        assertEquals(3, frame.remaining());
+        assertEquals(1, copy.get(0));
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * The MIT License
+ * Copyright (c) 2017 LivePerson, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package io.dropwizard.websockets.subprotocol;
+
+import io.dropwizard.websockets.MyApp;
+import java.util.Collections;
+import java.util.Map;
+import javax.websocket.Endpoint;
+import javax.websocket.server.ServerEndpointConfig;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class SubprotocolConfiguratorTest {
+    @Test
+    public void testHandlerIsOpenedWithItsOwnConfig() {
+        SubprotocolConfigurator configurator = new SubprotocolConfigurator(
+                Collections.<String, Class<? extends Endpoint>>singletonMap("echo", MyApp.EchoServer.class));
+        ServerEndpointConfig routerConfig = ServerEndpointConfig.Builder.create(SubprotocolRouter.class, "/subprotocol-ws")
+                .subprotocols(configurator.getSubprotocols())
+                .configurator(configurator)
+                .build();
+        routerConfig.getUserProperties().put("tenant", "a");
+
+        ServerEndpointConfig config = configurator.getHandlerConfig("echo", routerConfig);
+        assertEquals(MyApp.EchoServer.class, config.getEndpointClass());
+        assertEquals("/subprotocol-ws", config.getPath());
+        assertEquals(Collections.singletonList("echo"), config.getSubprotocols());
+        assertEquals("a", config.getUserProperties().get("tenant"));
+        assertSame(config, configurator.getHandlerConfig("echo", routerConfig));
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void testRejectsAnnotatedHandlers() {
+        Map handlers = Collections.singletonMap("echo", MyApp.AnnotatedEchoServer.class);
+        try {
+            new SubprotocolConfigurator(handlers);
+            fail("annotated handlers get neither metrics nor a delegate");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}